@@ -0,0 +1,184 @@
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Optional 'active rendering' mode. Instead of waiting for Swing timers and repaint requests on the Event Dispatching
+ * Thread, a dedicated thread runs a loop that picks up the latest snapshot of the game (see GameLoop) and draws the
+ * whole panel straight into a BufferStrategy of the window, once per refresh of the display.
+ *
+ * The loop also measures frame pacing: how long each frame took, on average, how much that varies, and the worst
+ * frame in the last second.
+ */
+public class ActiveRenderLoop implements Runnable {
+
+    //The window to draw into, and the panel to draw.
+    private Window window;
+    private GamePanel panel;
+
+    //The buffers that each frame is drawn into before it is shown.
+    private BufferStrategy bufferStrategy;
+
+    //The thread that runs the loop, and whether or not it should keep running.
+    private Thread thread;
+    private volatile boolean running = false;
+
+    //The time that each frame should take, in nanoseconds.
+    private long frameTime;
+
+    //Frame pacing measurements, in nanoseconds.
+    private long lastFrameStart = -1;
+    private volatile double averageFrameTime = 0;
+    private volatile double frameTimeJitter = 0;
+    private volatile long maxFrameTime = 0;
+    //The worst frame seen so far in the current second, and when that second started.
+    private long currentMaxFrameTime = 0;
+    private long maxFrameTimeStart = 0;
+
+    //How quickly the averages follow new measurements.
+    final private static double SMOOTHING = 0.05;
+    //The refresh rate to use when the display does not say what it is.
+    final private static int DEFAULT_REFRESH_RATE = 60;
+
+    /**
+     * Constructor.
+     * @param window The window to draw into. It must be showing on the screen.
+     * @param panel The panel to update and draw.
+     */
+    public ActiveRenderLoop(Window window, GamePanel panel) {
+        this.window = window;
+        this.panel = panel;
+
+        //Draw once for every refresh of the display.
+        int refreshRate = DisplayMode.REFRESH_RATE_UNKNOWN;
+        GraphicsConfiguration configuration = window.getGraphicsConfiguration();
+        if (configuration != null) {
+            refreshRate = configuration.getDevice().getDisplayMode().getRefreshRate();
+        }
+        if (refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN) {
+            refreshRate = DEFAULT_REFRESH_RATE;
+        }
+        frameTime = 1000000000L/refreshRate;
+    }
+
+    /**
+     * Starts the loop. From now on, Swing no longer paints the window.
+     */
+    public void start() {
+        window.setIgnoreRepaint(true);
+        panel.setIgnoreRepaint(true);
+        window.createBufferStrategy(2);
+        bufferStrategy = window.getBufferStrategy();
+
+        running = true;
+        thread = new Thread(this, "Active render loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the loop, and waits for it to finish.
+     */
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running == true) {
+            long frameStart = System.nanoTime();
+            measureFrame(frameStart);
+
+            //Pick up the latest snapshot of the game and draw the frame. The panel is locked, so that events can not
+            //change it halfway through.
+            synchronized (panel.getLock()) {
+                panel.updateFrame();
+                drawFrame();
+            }
+            Toolkit.getDefaultToolkit().sync();
+
+            //Wait until it is time for the next frame.
+            long sleepTime = frameStart + frameTime - System.nanoTime();
+            if (sleepTime > 0) {
+                try {
+                    Thread.sleep(sleepTime/1000000, (int) (sleepTime%1000000));
+                } catch (InterruptedException exception) {
+                    running = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws the panel into the next buffer and shows it. If the contents of the buffer get lost along the way
+     * (which can happen, for example, when the display changes), it is drawn again.
+     */
+    private void drawFrame() {
+        do {
+            do {
+                Graphics g = bufferStrategy.getDrawGraphics();
+                //Move to where the panel is inside of the window.
+                Point location = SwingUtilities.convertPoint(panel, 0, 0, window);
+                g.translate(location.x, location.y);
+                g.clipRect(0, 0, panel.getWidth(), panel.getHeight());
+                panel.render(g);
+                g.dispose();
+            } while (bufferStrategy.contentsRestored() == true);
+            bufferStrategy.show();
+        } while (bufferStrategy.contentsLost() == true);
+    }
+
+    /**
+     * Measures how long it has been since the last frame started.
+     * @param frameStart The time at which this frame started.
+     */
+    private void measureFrame(long frameStart) {
+        if (lastFrameStart >= 0) {
+            long elapsed = frameStart - lastFrameStart;
+            averageFrameTime += (elapsed - averageFrameTime)*SMOOTHING;
+            frameTimeJitter += (Math.abs(elapsed - averageFrameTime) - frameTimeJitter)*SMOOTHING;
+
+            currentMaxFrameTime = Math.max(currentMaxFrameTime, elapsed);
+            if (frameStart - maxFrameTimeStart >= 1000000000L) {
+                maxFrameTime = currentMaxFrameTime;
+                currentMaxFrameTime = 0;
+                maxFrameTimeStart = frameStart;
+            }
+        }
+        lastFrameStart = frameStart;
+    }
+
+    /*  Getters */
+
+    /**
+     * Gets the average time between frames.
+     * @return The time, in milliseconds.
+     */
+    public double getAverageFrameTime() {
+        return averageFrameTime/1000000;
+    }
+
+    /**
+     * Gets how much the time between frames varies from the average.
+     * @return The average difference, in milliseconds.
+     */
+    public double getFrameTimeJitter() {
+        return frameTimeJitter/1000000;
+    }
+
+    /**
+     * Gets the longest time between two frames in the last second.
+     * @return The time, in milliseconds.
+     */
+    public double getMaxFrameTime() {
+        return maxFrameTime/1000000.0;
+    }
+}
@@ -0,0 +1,591 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A player controlled by the computer. It plays the current game piece with the same inputs that a person would give
+ * (left, right, down, rotate and hard drop), so the game can not tell the difference.
+ *
+ * When a new game piece comes in, every place where it can land is found (see PlacementEnumerator). Each one is
+ * scored by how good the grid would look afterwards, using a weighted sum of:
+ * - the aggregate height: the heights of all of the columns added up,
+ * - the lines cleared,
+ * - the holes: empty cells with a filled cell somewhere above them,
+ * - the bumpiness: how much the heights of neighbouring columns differ, added up.
+ * The next game piece is known too, so each placement is scored by the best placement of the next game piece after
+ * it. The placements are split up between the threads of a ForkJoinPool, so all of the cores score them at once.
+ *
+ * Different placements often lead to the same cells being filled (for example, two game pieces of the same shape
+ * landed in either order), so scores are kept in a TranspositionTable, by the hash of the board. A board that has
+ * been scored before, in this decision or an earlier one, is looked up instead of being scored again.
+ *
+ * For a deeper look ahead, a search time can be set. The few placements that score best are then played out against
+ * many possible futures in a MonteCarloSearch, for as long as the search time, and the one that does best on average
+ * is chosen instead.
+ *
+ * The player then moves the game piece to the best placement, one move at a time, and drops it. If the game piece ends
+ * up somewhere else than planned (for example, gravity dropped it), the plan is made again from where it is.
+ *
+ * Usage: java AutoPlayer [games] [drop time in milliseconds] [most pieces per game] [weights]
+ *        [search time in milliseconds]
+ * The weights can be anything that readWeights reads, such as a checkpoint of the WeightTuner.
+ * Plays games without drawing them, as fast as the CPU allows, and reports how well they went and how long each
+ * decision took. A decision has to take less than a step of the game (STEP_TIME) to keep up with gravity.
+ */
+public class AutoPlayer {
+
+    //The index of each weight.
+    final public static int WEIGHT_HEIGHT = 0;
+    final public static int WEIGHT_LINES = 1;
+    final public static int WEIGHT_HOLES = 2;
+    final public static int WEIGHT_BUMPINESS = 3;
+    final public static int WEIGHT_COUNT = 4;
+
+    //Weights that play well, from Yiyuan Lee`s "Tetris AI - The (Near) Perfect Bot".
+    final private static double[] DEFAULT_WEIGHTS = {-0.510066, 0.760666, -0.35663, -0.184483};
+
+    //The score of a placement that ends the game. MonteCarloSearch scores rollouts that end the game the same way.
+    final static double LOSING_SCORE = -1e9;
+    //The fewest placements that are scored on one thread, rather than being split up further.
+    final private static int SPLIT_THRESHOLD = 2;
+    //The number of scores kept in the transposition table.
+    final private static int TABLE_ENTRIES = 1 << 16;
+    //The most placements that are played out by the Monte Carlo search.
+    final private static int SEARCH_CANDIDATES = 6;
+
+    //How much each feature counts.
+    final private double[] weights;
+    //The threads that score placements, or null to score them on the thread that runs the game.
+    private ForkJoinPool pool;
+    //Whether or not to look ahead at the next game piece.
+    private boolean lookahead = true;
+    //The most moves to make in a single step of the game, or 0 to make all of them at once.
+    private int movesPerStep = 0;
+    //The scores of boards that have already been scored, or null to score every board.
+    private TranspositionTable transpositionTable = new TranspositionTable(TABLE_ENTRIES);
+    //How long to search ahead for each game piece, in nanoseconds, or 0 to not search. The search is only made once
+    //it is needed.
+    private long searchTime = 0;
+    private MonteCarloSearch monteCarloSearch = null;
+    //The placements given to the search, as indexes of the placements of the current game piece.
+    private int[] searchCandidates = new int[SEARCH_CANDIDATES];
+    private int[] searchX = new int[SEARCH_CANDIDATES], searchY = new int[SEARCH_CANDIDATES];
+    private int[] searchOrientation = new int[SEARCH_CANDIDATES];
+
+    //Finds the placements of the current game piece.
+    private PlacementEnumerator placementEnumerator = new PlacementEnumerator();
+    //The placements being scored, and their scores.
+    private int[] candidateX = new int[0], candidateY = new int[0], candidateOrientation = new int[0];
+    private double[] scores = new double[0];
+
+    //The moves still to make to reach the chosen placement, and where the game piece should be when they are made.
+    private ArrayList<GameEngine.Input> moves = new ArrayList<>();
+    private int nextMove = 0;
+    private GamePiece plannedPiece = null;
+    private int expectedX, expectedY, expectedOrientation;
+
+    /**
+     * Constructor. Plays with the default weights, using all of the cores.
+     */
+    public AutoPlayer() {
+        this(DEFAULT_WEIGHTS, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor.
+     * @param weights How much each feature counts, indexed by WEIGHT_HEIGHT and the others.
+     * @param pool The threads that score placements, or null to score them all on the thread that runs the game (for
+     *             example, when many games are already being played at once).
+     */
+    public AutoPlayer(double[] weights, ForkJoinPool pool) {
+        this.weights = weights.clone();
+        this.pool = pool;
+    }
+
+    /**
+     * Gives the inputs for the current step of the game. Must be called before every step, on the thread that runs
+     * the game.
+     * @param engine The game.
+     */
+    public void update(GameEngine engine) {
+        if (engine.isGameOver() == true) {
+            return;
+        }
+        GamePiece gamePiece = engine.getCurrentGamePiece();
+        //Make a new plan for a new game piece, or if the game piece is not where the plan expects it to be.
+        if (gamePiece != plannedPiece || gamePiece.getPieceX() != expectedX || gamePiece.getPieceY() != expectedY
+                || gamePiece.getOrientation() != expectedOrientation) {
+            plan(engine);
+        }
+
+        int limit = movesPerStep == 0 ? Integer.MAX_VALUE : movesPerStep;
+        for (int i = 0; i < limit && engine.isGameOver() == false; i ++) {
+            if (nextMove == moves.size()) {
+                //It is in place.
+                plannedPiece = null;
+                engine.apply(GameEngine.Input.HARD_DROP);
+                return;
+            }
+            engine.apply(moves.get(nextMove ++));
+        }
+        expectedX = gamePiece.getPieceX();
+        expectedY = gamePiece.getPieceY();
+        expectedOrientation = gamePiece.getOrientation();
+    }
+
+    /**
+     * Chooses the best placement for the current game piece, and works out the moves that get it there.
+     * @param engine The game.
+     */
+    private void plan(GameEngine engine) {
+        GamePiece gamePiece = engine.getCurrentGamePiece();
+        int count = placementEnumerator.enumerate(gamePiece);
+        plannedPiece = gamePiece;
+        moves.clear();
+        nextMove = 0;
+        if (count == 0) {
+            return;
+        }
+        if (transpositionTable != null) {
+            transpositionTable.newSearch();
+        }
+
+        if (candidateX.length < count) {
+            candidateX = new int[count];
+            candidateY = new int[count];
+            candidateOrientation = new int[count];
+            scores = new double[count];
+        }
+        for (int i = 0; i < count; i ++) {
+            candidateX[i] = placementEnumerator.getX(i);
+            candidateY[i] = placementEnumerator.getY(i);
+            candidateOrientation[i] = placementEnumerator.getOrientation(i);
+        }
+
+        //Where the next game piece will start on the game grid, the same as GameEngine.movePieceToGameGrid puts it.
+        GamePiece nextGamePiece = engine.getNextGamePiece();
+        Board board = gamePiece.getGrid().getBoard();
+        int nextType = nextGamePiece.getType();
+        int nextOrientation = nextGamePiece.getOrientation();
+        int nextX = GamePiece.getSpawnX(nextType, nextOrientation, board.getColumns());
+        int nextY = GamePiece.getSpawnY(nextType, nextOrientation);
+
+        int[] rowMasks = new int[board.getRows()];
+        board.copyCells(rowMasks, new byte[board.getRows()*board.getColumns()]);
+        ScoreTask task = new ScoreTask(rowMasks, board.getColumns(), gamePiece.getType(), nextType, nextOrientation,
+                nextX, nextY, getPieceKey(nextType, nextOrientation, nextX, nextY), 0, count);
+        if (pool != null) {
+            pool.invoke(task);
+        }
+        else {
+            task.scoreAll();
+        }
+
+        int best = 0;
+        for (int i = 1; i < count; i ++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (searchTime > 0) {
+            best = search(engine, count);
+        }
+        placementEnumerator.getPath(best, moves);
+        expectedX = gamePiece.getPieceX();
+        expectedY = gamePiece.getPieceY();
+        expectedOrientation = gamePiece.getOrientation();
+    }
+
+    /**
+     * Plays out the placements that scored best against many possible futures, and chooses the best of them.
+     * @param engine The game.
+     * @param count The number of placements. They must all have been scored.
+     * @return The index of the chosen placement.
+     */
+    private int search(GameEngine engine, int count) {
+        //Take the best few, from best to worst. Placements that end the game are never worth searching.
+        int candidates = 0;
+        while (candidates < SEARCH_CANDIDATES) {
+            int best = -1;
+            for (int i = 0; i < count; i ++) {
+                if (scores[i] > LOSING_SCORE && isSearchCandidate(i, candidates) == false
+                        && (best == -1 || scores[i] > scores[best])) {
+                    best = i;
+                }
+            }
+            if (best == -1) {
+                break;
+            }
+            searchCandidates[candidates] = best;
+            searchX[candidates] = candidateX[best];
+            searchY[candidates] = candidateY[best];
+            searchOrientation[candidates] = candidateOrientation[best];
+            candidates ++;
+        }
+        if (candidates == 0) {
+            return 0;
+        }
+        if (candidates == 1) {
+            return searchCandidates[0];
+        }
+
+        if (monteCarloSearch == null) {
+            monteCarloSearch = new MonteCarloSearch(weights, pool, System.nanoTime());
+        }
+        int chosen = monteCarloSearch.search(engine, searchX, searchY, searchOrientation, candidates,
+                System.nanoTime() + searchTime);
+        return searchCandidates[chosen];
+    }
+
+    /**
+     * Checks to see if a placement is one of the first few search candidates.
+     */
+    private boolean isSearchCandidate(int placement, int candidates) {
+        for (int i = 0; i < candidates; i ++) {
+            if (searchCandidates[i] == placement) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scores a range of the placements, splitting it in half until it is small enough to score on one thread.
+     */
+    @SuppressWarnings("serial")
+    private class ScoreTask extends RecursiveAction {
+        //The landed blocks before the current game piece lands, and the number of columns.
+        final private int[] rowMasks;
+        final private int columns;
+        //The current game piece, and where the next game piece starts.
+        final private int type, nextType, nextOrientation, nextX, nextY;
+        //Mixed into the hash of a board, to look up the score of the best placement of the next game piece on it.
+        final private long nextKey;
+        final private int from, to;
+
+        private ScoreTask(int[] rowMasks, int columns, int type, int nextType, int nextOrientation, int nextX,
+                          int nextY, long nextKey, int from, int to) {
+            this.rowMasks = rowMasks;
+            this.columns = columns;
+            this.type = type;
+            this.nextType = nextType;
+            this.nextOrientation = nextOrientation;
+            this.nextX = nextX;
+            this.nextY = nextY;
+            this.nextKey = nextKey;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                scoreAll();
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ScoreTask(rowMasks, columns, type, nextType, nextOrientation, nextX, nextY, nextKey, from,
+                    middle), new ScoreTask(rowMasks, columns, type, nextType, nextOrientation, nextX, nextY, nextKey,
+                    middle, to));
+        }
+
+        /**
+         * Scores the whole range on the current thread.
+         */
+        private void scoreAll() {
+            SearchWorkspace workspace = SearchWorkspace.get(columns, rowMasks.length);
+            for (int i = from; i < to; i ++) {
+                scores[i] = score(workspace, i);
+            }
+        }
+
+        /**
+         * Scores a placement of the current game piece by the best placement of the next game piece after it.
+         */
+        private double score(SearchWorkspace workspace, int candidate) {
+            Board afterFirst = workspace.board;
+            afterFirst.setCells(rowMasks, workspace.colours);
+            int lines = place(afterFirst, type, candidateOrientation[candidate], candidateX[candidate],
+                    candidateY[candidate]);
+            if (lines < 0) {
+                return LOSING_SCORE;
+            }
+            if (lookahead == false) {
+                //Boards one game piece ahead are all different, so there is nothing to look up.
+                return weights[WEIGHT_LINES]*lines + evaluateCells(afterFirst, weights);
+            }
+
+            //The best placement of the next game piece only depends on the cells, and not on how they were filled.
+            long key = afterFirst.getHash() ^ nextKey;
+            double best = transpositionTable != null ? transpositionTable.get(key, 1) : Double.NaN;
+            if (Double.isNaN(best) == true) {
+                best = scoreNextPiece(workspace);
+                if (transpositionTable != null) {
+                    transpositionTable.put(key, 1, best);
+                }
+            }
+            if (best == LOSING_SCORE) {
+                return LOSING_SCORE;
+            }
+            return weights[WEIGHT_LINES]*lines + best;
+        }
+
+        /**
+         * Scores the best placement of the next game piece on the board in workspace.board, not counting the lines
+         * cleared before it.
+         */
+        private double scoreNextPiece(SearchWorkspace workspace) {
+            Board afterFirst = workspace.board;
+            int count = workspace.placementEnumerator.enumerate(afterFirst, nextType, nextOrientation, nextX, nextY);
+            int[] afterFirstMasks = workspace.rowMasks;
+            afterFirst.copyCells(afterFirstMasks, workspace.colours);
+            //Two game pieces of the same shape can land in either order, so the boards after both of them are often
+            //ones that another placement has already scored. Otherwise they hardly ever are, and scoring them again
+            //is quicker than looking them up.
+            boolean lookUp = transpositionTable != null && type == nextType;
+            double best = LOSING_SCORE;
+            for (int i = 0; i < count; i ++) {
+                Board afterSecond = workspace.scratch;
+                afterSecond.setCells(afterFirstMasks, workspace.colours);
+                int moreLines = place(afterSecond, nextType, workspace.placementEnumerator.getOrientation(i),
+                        workspace.placementEnumerator.getX(i), workspace.placementEnumerator.getY(i));
+                if (moreLines >= 0) {
+                    double cellScore = lookUp == true ? getCellScore(afterSecond) : evaluateCells(afterSecond, weights);
+                    best = Math.max(best, weights[WEIGHT_LINES]*moreLines + cellScore);
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Scores the cells of a board with the weights of this player, looking it up in the transposition table first.
+     * There must be a transposition table.
+     * @param board The board, after a game piece has landed and the full rows are cleared.
+     * @return The score, not counting the lines cleared.
+     */
+    private double getCellScore(Board board) {
+        double score = transpositionTable.get(board.getHash(), 0);
+        if (Double.isNaN(score) == true) {
+            score = evaluateCells(board, weights);
+            transpositionTable.put(board.getHash(), 0, score);
+        }
+        return score;
+    }
+
+    /**
+     * Makes the key of a game piece, to mix into the hash of a board.
+     */
+    private static long getPieceKey(int type, int orientation, int x, int y) {
+        //The finaliser of SplitMix64, so that every game piece gets a key that looks random.
+        long key = (((long) type*GamePiece.getORIENTATIONS() + orientation) << 32 | (x & 0xFFFF) << 16 | (y & 0xFFFF))
+                + 0x9E3779B97F4A7C15L;
+        key = (key ^ (key >>> 30))*0xBF58476D1CE4E5B9L;
+        key = (key ^ (key >>> 27))*0x94D049BB133111EBL;
+        return key ^ (key >>> 31);
+    }
+
+    /**
+     * Reads a weights setting: either the weights themselves, separated by commas, in the order of WEIGHT_HEIGHT and
+     * the others, or a checkpoint file of the WeightTuner, whose best weights are used.
+     * @param setting The setting.
+     * @return The weights.
+     * @throws IOException If the checkpoint can not be read.
+     * @throws IllegalArgumentException If the weights are not numbers, or there are not WEIGHT_COUNT of them.
+     */
+    public static double[] readWeights(String setting) throws IOException {
+        if (setting.contains(",") == false) {
+            return WeightTuner.load(Paths.get(setting)).getBestWeights();
+        }
+        String[] values = setting.split(",");
+        if (values.length != WEIGHT_COUNT) {
+            throw new IllegalArgumentException("There must be " + WEIGHT_COUNT + " weights, not " + values.length + ".");
+        }
+        double[] weights = new double[WEIGHT_COUNT];
+        for (int i = 0; i < WEIGHT_COUNT; i ++) {
+            weights[i] = Double.parseDouble(values[i].trim());
+        }
+        return weights;
+    }
+
+    /**
+     * Lands a game piece on a board, and clears any full rows, the same way as the game does.
+     * @param board The board.
+     * @param type The type of shape.
+     * @param orientation The orientation.
+     * @param x The left most column of the game piece.
+     * @param y The top most row of the game piece.
+     * @return The number of lines cleared, or -1 if the game would be over.
+     */
+    public static int place(Board board, int type, int orientation, int x, int y) {
+        int[] shapeX = GamePiece.getShapeX(type, orientation);
+        int[] shapeY = GamePiece.getShapeY(type, orientation);
+        for (int i = 0; i < shapeX.length; i ++) {
+            if (y + shapeY[i] < 0) {
+                return -1;
+            }
+            board.fillCell(x + shapeX[i], y + shapeY[i], 0);
+        }
+        //Clear the lines the same way as the game does: the terminal line is never cleared (see Grid.clearFullRows),
+        //and the game is over if a block is left on it (see Grid.blockOnTerminalLine).
+        int lines = board.clearFullRows(Grid.TERMINAL_LINE_ROW + 1).length;
+        if (board.isRowEmpty(Grid.TERMINAL_LINE_ROW) == false) {
+            return -1;
+        }
+        return lines;
+    }
+
+    /**
+     * Scores a board with the given weights.
+     * @param board The board, after a game piece has landed and the full rows are cleared.
+     * @param lines The number of lines that were cleared.
+     * @param weights How much each feature counts.
+     * @return The score. Higher is better.
+     */
+    public static double evaluate(Board board, int lines, double[] weights) {
+        return weights[WEIGHT_LINES]*lines + evaluateCells(board, weights);
+    }
+
+    /**
+     * Scores the cells of a board with the given weights: everything but the lines cleared.
+     * @param board The board, after a game piece has landed and the full rows are cleared.
+     * @param weights How much each feature counts.
+     * @return The score. Higher is better.
+     */
+    public static double evaluateCells(Board board, double[] weights) {
+        int aggregateHeight = 0, holes = 0, bumpiness = 0;
+        int columns = board.getColumns();
+        int rows = board.getRows();
+        for (int column = 0; column < columns; column ++) {
+            int height = board.getColumnHeight(column);
+            aggregateHeight += height;
+            if (column > 0) {
+                bumpiness += Math.abs(height - board.getColumnHeight(column - 1));
+            }
+        }
+        //A hole is an empty cell below the top of its column. Each row has a hole wherever a cell above it in the same
+        //column is filled (counted by 'covered'), and its own cell is empty.
+        int covered = 0;
+        for (int row = 0; row < rows; row ++) {
+            int mask = board.getRowMask(row);
+            holes += Integer.bitCount(covered & ~mask);
+            covered |= mask;
+        }
+        return weights[WEIGHT_HEIGHT]*aggregateHeight + weights[WEIGHT_HOLES]*holes
+                + weights[WEIGHT_BUMPINESS]*bumpiness;
+    }
+
+    /*  Getters and Setters */
+
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    public boolean hasLookahead() {
+        return lookahead;
+    }
+
+    /**
+     * Sets whether or not to look ahead at the next game piece. Without it, the player is several times faster, but
+     * does not play as well.
+     * @param lookahead True to look ahead, false to not.
+     */
+    public void setLookahead(boolean lookahead) {
+        this.lookahead = lookahead;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    /**
+     * Sets the table that keeps the scores of boards that have already been scored. Its scores must have been worked
+     * out with the same weights, so a table should not be shared between players.
+     * @param transpositionTable The table, or null to score every board.
+     */
+    public void setTranspositionTable(TranspositionTable transpositionTable) {
+        this.transpositionTable = transpositionTable;
+    }
+
+    public long getSearchTime() {
+        return searchTime;
+    }
+
+    /**
+     * Sets how long to search ahead for each game piece (see MonteCarloSearch). It should be well under the time it
+     * takes a game piece to fall one row, or gravity will move the game piece while the player is still thinking.
+     * @param searchTime The time, in nanoseconds, or 0 to only look at the next game piece.
+     */
+    public void setSearchTime(long searchTime) {
+        this.searchTime = searchTime;
+    }
+
+    /**
+     * Gets the Monte Carlo search.
+     * @return The search, or null if there has not been one yet.
+     */
+    public MonteCarloSearch getMonteCarloSearch() {
+        return monteCarloSearch;
+    }
+
+    public int getMovesPerStep() {
+        return movesPerStep;
+    }
+
+    /**
+     * Sets how fast the player moves the game piece.
+     * @param movesPerStep The most moves to make in a single step of the game, or 0 to make all of them at once.
+     */
+    public void setMovesPerStep(int movesPerStep) {
+        this.movesPerStep = movesPerStep;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int dropTime = args.length > 1 ? Integer.parseInt(args[1]) : 17;
+        int maxPieces = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+        double[] weights = args.length > 3 ? readWeights(args[3]) : DEFAULT_WEIGHTS;
+        int searchTime = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+
+        LatencyHistogram decisionTimes = new LatencyHistogram();
+        long startTime = System.nanoTime();
+        long totalPieces = 0, totalLines = 0;
+        long hits = 0, lookups = 0, searches = 0, rollouts = 0;
+        for (int game = 0; game < games; game ++) {
+            GameEngine engine = new GameEngine(10, 16, new BagPieceGenerator(game));
+            engine.setDropTime(dropTime);
+            AutoPlayer autoPlayer = new AutoPlayer(weights, ForkJoinPool.commonPool());
+            autoPlayer.setSearchTime(searchTime*1000000L);
+            while (engine.isGameOver() == false && engine.getPiecesPlaced() < maxPieces) {
+                long decisionStart = System.nanoTime();
+                autoPlayer.update(engine);
+                decisionTimes.record(System.nanoTime() - decisionStart);
+                engine.step();
+            }
+            System.out.println("Game " + game + ": " + engine.getPiecesPlaced() + " pieces, " + engine.getLinesCleared()
+                    + " lines" + (engine.isGameOver() == true ? ", game over" : ""));
+            totalPieces += engine.getPiecesPlaced();
+            totalLines += engine.getLinesCleared();
+            hits += autoPlayer.getTranspositionTable().getHits();
+            lookups += autoPlayer.getTranspositionTable().getHits() + autoPlayer.getTranspositionTable().getMisses();
+            if (autoPlayer.getMonteCarloSearch() != null) {
+                searches += autoPlayer.getMonteCarloSearch().getSearches();
+                rollouts += autoPlayer.getMonteCarloSearch().getTotalRollouts();
+            }
+        }
+        double seconds = (System.nanoTime() - startTime)/1e9;
+        System.out.printf("%d pieces, %d lines in %.2f s (%.0f pieces/s)%n", totalPieces, totalLines, seconds,
+                totalPieces/seconds);
+        System.out.printf("Decision time: p50=%.3fms p99=%.3fms max=%.3fms (a step is %.3fms)%n",
+                decisionTimes.getPercentile(50)/1e6, decisionTimes.getPercentile(99)/1e6, decisionTimes.getMax()/1e6,
+                GameEngine.STEP_TIME/1e6);
+        System.out.printf("Transposition table: %d of %d lookups found (%.1f%%)%n", hits, lookups,
+                lookups == 0 ? 0 : 100.0*hits/lookups);
+        if (searches > 0) {
+            System.out.printf("Monte Carlo search: %d searches, %.0f rollouts per search (%d threads)%n", searches,
+                    (double) rollouts/searches, ForkJoinPool.commonPool().getParallelism());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * A layer of drawing that does not change from frame to frame, such as the backgrounds of the grids. It is drawn
+ * once into an offscreen image, and from then on that image is copied onto the screen. The image is only drawn again
+ * when the size of the screen changes, or when invalidate() is called.
+ */
+public class BackgroundLayer {
+
+    /**
+     * Draws the contents of the layer.
+     */
+    public interface Painter {
+        void paint(Graphics g);
+    }
+
+    //Draws the contents of the layer.
+    private Painter painter;
+
+    //The image that holds the layer, and the size and scale it was drawn at.
+    private Image image = null;
+    private int imageW, imageH;
+    private double imageScale;
+
+    /**
+     * Constructor.
+     * @param painter Draws the contents of the layer.
+     */
+    public BackgroundLayer(Painter painter) {
+        this.painter = painter;
+    }
+
+    /**
+     * Draws the layer, drawing the image again first if needed.
+     * @param g The graphics object.
+     * @param w The width of the screen.
+     * @param h The height of the screen.
+     */
+    public void draw(Graphics g, int w, int h) {
+        double scale = BlockSprites.getScale(g);
+        if (image == null || w != imageW || h != imageH || scale != imageScale) {
+            createImage(g, w, h, scale);
+        }
+        g.drawImage(image, 0, 0, w, h, null);
+    }
+
+    /**
+     * Throws away the image, so that it is drawn again the next time the layer is drawn.
+     * Must be called whenever something in the layer changes.
+     */
+    public void invalidate() {
+        image = null;
+    }
+
+    /**
+     * Draws the layer into a new image.
+     * @param g The graphics object that the image will be drawn with.
+     * @param w The width of the screen.
+     * @param h The height of the screen.
+     * @param scale The scale to draw at.
+     */
+    private void createImage(Graphics g, int w, int h, double scale) {
+        int imageWidth = (int) Math.ceil(w*scale);
+        int imageHeight = (int) Math.ceil(h*scale);
+
+        //Use an image that suits the screen, so that it can be copied quickly.
+        Image newImage = null;
+        if (g instanceof Graphics2D) {
+            GraphicsConfiguration configuration = ((Graphics2D) g).getDeviceConfiguration();
+            if (configuration != null) {
+                newImage = configuration.createCompatibleImage(imageWidth, imageHeight, Transparency.OPAQUE);
+            }
+        }
+        if (newImage == null) {
+            newImage = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+        }
+
+        Graphics2D imageGraphics = (Graphics2D) newImage.getGraphics();
+        imageGraphics.scale(scale, scale);
+        painter.paint(imageGraphics);
+        imageGraphics.dispose();
+
+        image = newImage;
+        imageW = w;
+        imageH = h;
+        imageScale = scale;
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * The '7-bag' generator: all 7 shapes are put in a bag and shuffled, and the game pieces are taken out of the bag in
+ * that order. When the bag is empty, it is filled and shuffled again.
+ *
+ * Every shape comes up exactly once in each group of 7, so the same shape can come at most twice in a row, and there
+ * are never more than 12 other game pieces between two of the same shape.
+ */
+public class BagPieceGenerator extends RandomPieceGenerator {
+
+    //The shapes in the bag, in the order they come out, and how many have been taken out.
+    private int[] bag = new int[GamePiece.getTYPES()];
+    private int taken;
+
+    /**
+     * Constructor.
+     * @param seed The seed.
+     */
+    public BagPieceGenerator(long seed) {
+        super(seed);
+        taken = bag.length;
+    }
+
+    @Override
+    protected RandomPieceGenerator create(long seed) {
+        return new BagPieceGenerator(seed);
+    }
+
+    @Override
+    public String getName() {
+        return "bag";
+    }
+
+    @Override
+    public int nextType() {
+        if (taken == bag.length) {
+            fillBag();
+        }
+        return bag[taken ++];
+    }
+
+    @Override
+    protected void copyState(RandomPieceGenerator generator) {
+        BagPieceGenerator bagGenerator = (BagPieceGenerator) generator;
+        System.arraycopy(bag, 0, bagGenerator.bag, 0, bag.length);
+        bagGenerator.taken = taken;
+        //The same shapes are left in the bag, but in a new order, since the order in this bag is not known yet.
+        for (int i = bag.length - 1; i > taken; i --) {
+            int j = taken + bagGenerator.random.nextInt(i - taken + 1);
+            int type = bagGenerator.bag[i];
+            bagGenerator.bag[i] = bagGenerator.bag[j];
+            bagGenerator.bag[j] = type;
+        }
+    }
+
+    /**
+     * Puts every shape in the bag, and shuffles it (Fisher-Yates).
+     */
+    private void fillBag() {
+        for (int i = 0; i < bag.length; i ++) {
+            bag[i] = i;
+        }
+        for (int i = bag.length - 1; i > 0; i --) {
+            int j = random.nextInt(i + 1);
+            int type = bag[i];
+            bag[i] = bag[j];
+            bag[j] = type;
+        }
+        taken = 0;
+    }
+}
@@ -0,0 +1,342 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+/**
+ * Micro-benchmarks for the hot paths of the game: locking a landed game piece and clearing the full lines on boards with
+ * different amounts of blocks, the move and rotate collision checks, finding every placement of a game piece, drawing
+ * a full grid into an offscreen image, and wrapping the text of a text box into lines.
+ *
+ * Each benchmark is warmed up first, and then measured. For each one, the number of operations per second and the
+ * number of bytes allocated per operation are reported.
+ *
+ * Usage: java Benchmark [output.json]
+ * If an output file is given, the results are also written to it as JSON, so that the results of two builds can be
+ * compared.
+ */
+public class Benchmark {
+
+    //How long to warm up and to measure each benchmark for, in milliseconds.
+    final private static long WARMUP_TIME = 1000;
+    final private static long MEASURE_TIME = 2000;
+
+    //The fill levels of the boards used in the lock and clear benchmarks, in percent.
+    final private static int[] FILL_LEVELS = {0, 25, 50, 75, 100};
+
+    //The size of the game grid, in cells.
+    final private static int COLUMNS = 10;
+    final private static int ROWS = 16;
+
+    //The columns of the shaft that is left empty in the half full board used in the move and rotate benchmarks. The
+    //game piece is dropped down it to the bottom, so that every check it makes is against rows with blocks in them.
+    final private static int SHAFT_LEFT = 3;
+    final private static int SHAFT_RIGHT = 7;
+
+    //Text used for the text wrapping benchmark.
+    final private static String WRAP_TEXT = "Tetris!!! This game is my version of the popular puzzle game. The" +
+            " objective is to move and rotate game pieces to manipulate where they land. Once a game piece lands, " +
+            "a next game piece is randomly chosen. When a full horizontal line of blocks is formed on the grid, " +
+            "that row is deleted.";
+
+    //Results are written into this so that they can not be optimized away.
+    private static long sink;
+
+    /**
+     * A single benchmark. The operation is run over and over again.
+     */
+    private interface Operation {
+        void run();
+    }
+
+    /**
+     * The result of a single benchmark.
+     */
+    private static class Result {
+        String name;
+        double opsPerSecond;
+        double bytesPerOp;
+        double allocationRate;
+    }
+
+    public static void main(String[] args) {
+        ArrayList<Result> results = new ArrayList<>();
+
+        //Locking a landed game piece and clearing the lines it completes, the same way as the game does, on boards with
+        //different amounts of blocks. The board is filled in again before each one, which is part of the time.
+        for (int fillLevel : FILL_LEVELS) {
+            final Grid grid = createFilledGrid(fillLevel);
+            final int level = fillLevel;
+            final ArrayList<Block> landedBlocks = createLandedBlocks(fillLevel);
+            results.add(measure("lockAndClear_fill" + fillLevel, new Operation() {
+                public void run() {
+                    fill(grid.getBoard(), level);
+                    grid.lockBlocks(landedBlocks);
+                    sink += grid.clearFullRows().length;
+                }
+            }));
+        }
+
+        //Clearing four full lines at once. The lines are filled in again before each clear.
+        final Grid clearGrid = createFilledGrid(50);
+        results.add(measure("clearFullRows_4", new Operation() {
+            public void run() {
+                Board board = clearGrid.getBoard();
+                for (int row = board.getRows() - 4; row < board.getRows(); row ++) {
+                    for (int column = 0; column < board.getColumns(); column ++) {
+                        board.fillCell(column, row, 0);
+                    }
+                }
+                sink += clearGrid.clearFullRows().length;
+            }
+        }));
+
+        //Move and rotate collision checks, at the bottom of a shaft in a half full board. Moving left and then right
+        //puts the game piece back where it was, and rotating it at the bottom of the grid keeps it there, so it stays
+        //in the shaft without being put back.
+        final GameEngine engine = new GameEngine(COLUMNS, ROWS);
+        fill(engine.getGameGrid().getBoard(), 50);
+        emptyShaft(engine.getGameGrid().getBoard());
+        final GamePiece gamePiece = engine.getCurrentGamePiece();
+        dropIntoShaft(gamePiece);
+        results.add(measure("moveLeftRight", new Operation() {
+            public void run() {
+                gamePiece.moveLeft();
+                gamePiece.moveRight();
+            }
+        }));
+        results.add(measure("rotate", new Operation() {
+            public void run() {
+                gamePiece.rotate();
+            }
+        }));
+
+        //Finding every placement of a T on the same board, starting from the middle of the top row, where new game
+        //pieces come in. (The game piece above has been moved and rotated, so it would start from a different place
+        //every time.)
+        final Board engineBoard = engine.getGameGrid().getBoard();
+        final PlacementEnumerator placementEnumerator = new PlacementEnumerator();
+        results.add(measure("placements", new Operation() {
+            public void run() {
+                sink += placementEnumerator.enumerate(engineBoard, GamePiece.TYPE_T, 0, COLUMNS/2 - 1, 0);
+            }
+        }));
+
+        //Drawing a full board into an offscreen image.
+        final Grid fullGrid = createFilledGrid(100);
+        final BufferedImage image = new BufferedImage(COLUMNS*Block.getBlockWidth(), ROWS*Block.getBlockHeight(),
+                BufferedImage.TYPE_INT_RGB);
+        final Graphics2D imageGraphics = image.createGraphics();
+        imageGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        results.add(measure("gridDraw_full", new Operation() {
+            public void run() {
+                fullGrid.draw(imageGraphics);
+            }
+        }));
+
+        //Wrapping the text of a text box into lines, in its font and to its width. Only the wrapping is measured, not
+        //the drawing. The layout cache is emptied each time, or the text would only be wrapped the first time.
+        final TextBox textBox = new TextBox(50, 100, 1000, 400, WRAP_TEXT);
+        results.add(measure("textBoxWrap", new Operation() {
+            public void run() {
+                TextLayoutCache.clear();
+                sink += TextLayoutCache.getLayout(WRAP_TEXT, textBox.getTextFont(), textBox.getW(),
+                        imageGraphics).getLineCount();
+            }
+        }));
+
+        imageGraphics.dispose();
+
+        //Print the results.
+        for (Result result : results) {
+            System.out.printf("%-24s %16.1f ops/s %12.1f B/op %10.1f MB/s%n", result.name, result.opsPerSecond,
+                    result.bytesPerOp, result.allocationRate);
+        }
+
+        //Write the results to the output file, if there is one.
+        if (args.length > 0) {
+            try {
+                writeJson(args[0], results);
+            } catch (IOException exception) {
+                System.err.println("Could not write " + args[0] + ": " + exception.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Warms up, and then measures the operation.
+     * @param name The name of the benchmark.
+     * @param operation The operation to measure.
+     * @return The result.
+     */
+    private static Result measure(String name, Operation operation) {
+        //Warm up, so that the JIT compiler has a chance to compile the operation.
+        long end = System.currentTimeMillis() + WARMUP_TIME;
+        while (System.currentTimeMillis() < end) {
+            operation.run();
+        }
+
+        //Measure in batches, so that reading the clock does not get in the way.
+        long ops = 0;
+        long bytesBefore = getAllocatedBytes();
+        long startTime = System.nanoTime();
+        long endTime = startTime + MEASURE_TIME*1000000;
+        long currentTime = startTime;
+        int batch = 1;
+        while (currentTime < endTime) {
+            for (int i = 0; i < batch; i ++) {
+                operation.run();
+            }
+            ops += batch;
+            currentTime = System.nanoTime();
+            //Grow the batch as long as it takes less than a millisecond.
+            if (batch < (1 << 20) && ops*1000000 < (currentTime - startTime)*batch) {
+                batch *= 2;
+            }
+        }
+        long bytesAfter = getAllocatedBytes();
+
+        double seconds = (currentTime - startTime)/1e9;
+        Result result = new Result();
+        result.name = name;
+        result.opsPerSecond = ops/seconds;
+        result.bytesPerOp = (bytesAfter - bytesBefore)/(double) ops;
+        result.allocationRate = (bytesAfter - bytesBefore)/seconds/(1024*1024);
+        return result;
+    }
+
+    /**
+     * Gets the number of bytes allocated by this thread so far.
+     * @return The number of bytes, or 0 if the JVM can not tell.
+     */
+    private static long getAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    /**
+     * Creates a game grid that is filled to the given level.
+     * @param fillLevel The fill level, in percent.
+     * @return The grid.
+     */
+    private static Grid createFilledGrid(int fillLevel) {
+        Grid grid = new Grid(0, 0, COLUMNS*Block.getBlockWidth(), ROWS*Block.getBlockHeight());
+        fill(grid.getBoard(), fillLevel);
+        return grid;
+    }
+
+    /**
+     * Fills rows of the board from the bottom up, until the given level is reached. Unless the level is 100, one cell
+     * is left empty in each row, so that no lines are formed.
+     * @param board The board to fill.
+     * @param fillLevel The fill level, in percent.
+     */
+    private static void fill(Board board, int fillLevel) {
+        int rows = board.getRows()*fillLevel/100;
+        for (int row = board.getRows() - rows; row < board.getRows(); row ++) {
+            for (int column = 0; column < board.getColumns(); column ++) {
+                if (fillLevel == 100 || column != row % board.getColumns()) {
+                    board.fillCell(column, row, (row + column) % Block.getPaletteSize());
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the blocks of a game piece that has landed on a board made by createFilledGrid. They fill the empty cell
+     * of each of the top 4 filled rows, so those lines are cleared. With no filled rows, they lie along the bottom row.
+     * @param fillLevel The fill level of the board, in percent.
+     * @return The blocks.
+     */
+    private static ArrayList<Block> createLandedBlocks(int fillLevel) {
+        ArrayList<Block> blocks = new ArrayList<>();
+        int topRow = ROWS - ROWS*fillLevel/100;
+        for (int i = 0; i < GamePiece.getSIZE(); i ++) {
+            int row = topRow + i;
+            if (row < ROWS) {
+                blocks.add(new Block(row % COLUMNS, row, Block.getPaletteColour(0)));
+            }
+            else {
+                blocks.add(new Block(i, ROWS - 1, Block.getPaletteColour(0)));
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Empties the columns of the shaft, from the top of the board to the bottom.
+     * @param board The board.
+     */
+    private static void emptyShaft(Board board) {
+        int[] colourIndexes = new int[board.getColumns()];
+        for (int row = 0; row < board.getRows(); row ++) {
+            //Take out the whole row, and then put back the blocks that are not in the shaft.
+            int rowMask = board.getRowMask(row);
+            for (int column = 0; column < board.getColumns(); column ++) {
+                colourIndexes[column] = board.getColourIndex(column, row);
+            }
+            board.clearRow(row);
+            for (int column = 0; column < board.getColumns(); column ++) {
+                if ((rowMask & (1 << column)) != 0 && (column < SHAFT_LEFT || column > SHAFT_RIGHT)) {
+                    board.fillCell(column, row, colourIndexes[column]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the game piece over the shaft and drops it to the bottom.
+     * @param gamePiece The game piece.
+     * @throws IllegalStateException If the game piece does not end up at the bottom of the shaft.
+     */
+    private static void dropIntoShaft(GamePiece gamePiece) {
+        for (int i = 0; i < COLUMNS; i ++) {
+            gamePiece.moveLeft();
+        }
+        for (int i = 0; i < SHAFT_LEFT; i ++) {
+            gamePiece.moveRight();
+        }
+        while (gamePiece.moveDown() == true) {
+            //Keep going until it lands.
+        }
+        for (Block block : gamePiece.getBlocks()) {
+            if (block.getX() < SHAFT_LEFT || block.getX() > SHAFT_RIGHT || block.getY() < ROWS/2) {
+                throw new IllegalStateException("The game piece did not fall to the bottom of the shaft.");
+            }
+        }
+    }
+
+    /**
+     * Writes the results to a JSON file.
+     * @param fileName The name of the file.
+     * @param results The results.
+     * @throws IOException If the file can not be written.
+     */
+    private static void writeJson(String fileName, ArrayList<Result> results) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("[\n");
+        for (int i = 0; i < results.size(); i ++) {
+            Result result = results.get(i);
+            json.append(String.format("  {\"benchmark\": \"%s\", \"opsPerSecond\": %.1f, \"bytesPerOp\": %.1f, " +
+                    "\"allocationRateMBPerSecond\": %.1f}", result.name, result.opsPerSecond, result.bytesPerOp,
+                    result.allocationRate));
+            if (i + 1 < results.size()) {
+                json.append(",");
+            }
+            json.append("\n");
+        }
+        json.append("]\n");
+
+        FileWriter writer = new FileWriter(fileName);
+        try {
+            writer.write(json.toString());
+        } finally {
+            writer.close();
+        }
+    }
+}
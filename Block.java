@@ -12,8 +12,9 @@ public class Block {
     //the index in the 2D array. For example, top left corner means x = 0 and y = 0.
     private int x, y;
 
-    //The colour of the block.
+    //The colour of the block, and its index in the palette.
     private Color colour;
+    private int colourIndex;
     private final static Color OUTLINE_COLOUR = Color.BLACK;
 
     //The size of each block. Cannot be modified.
@@ -23,6 +24,19 @@ public class Block {
     //The size of the diameter of the arc at the corners of the background shape.
     final static private int CORNER_SIZE = 15;
 
+    //All of the colours that a block can be. Landed blocks are stored by their index in this palette (see Board).
+    final static private Color[] PALETTE = {Color.BLUE, Color.RED, Color.CYAN, Color.GREEN, Color.YELLOW,
+            Color.ORANGE, Color.GRAY, Color.PINK};
+    //See-through versions of the palette, used to draw where a game piece will land.
+    final static private Color[] GHOST_PALETTE = new Color[PALETTE.length];
+    final static private int GHOST_ALPHA = 70;
+
+    static {
+        for (int i = 0; i < PALETTE.length; i ++) {
+            GHOST_PALETTE[i] = new Color(PALETTE[i].getRed(), PALETTE[i].getGreen(), PALETTE[i].getBlue(), GHOST_ALPHA);
+        }
+    }
+
     /**
      * Constructor.
      * @param x The x position of the block on the grid.
@@ -33,6 +47,7 @@ public class Block {
         this.x = x;
         this.y = y;
         this.colour = colour;
+        this.colourIndex = getPaletteIndex(colour);
 
         //By default, make it so that it is a part of a game piece.
         setPartOfGamePiece(true);
@@ -46,6 +61,46 @@ public class Block {
      * @param offsetY The top edge of the grid.
      */
     public void draw(Graphics g, int offsetX, int offsetY) {
+        drawCell(g, x, y, colourIndex, offsetX, offsetY);
+    }
+
+    /**
+     * Draws a block of the given colour in the given cell. Used to draw blocks that only exist as cells on a Board.
+     * The block is copied from a pre-drawn sprite (see BlockSprites).
+     * @param g The graphics object.
+     * @param x The x position (column) of the cell.
+     * @param y The y position (row) of the cell.
+     * @param colourIndex The palette index of the colour of the block.
+     * @param offsetX The left edge of the grid.
+     * @param offsetY The top edge of the grid.
+     */
+    public static void drawCell(Graphics g, int x, int y, int colourIndex, int offsetX, int offsetY) {
+        drawSprite(g, BlockSprites.getSprite(g, colourIndex, false), x, y, offsetX, offsetY);
+    }
+
+    /**
+     * Draws the 'ghost' of a block: a see-through block that shows where a game piece will land.
+     * @param g The graphics object.
+     * @param x The x position (column) of the cell.
+     * @param y The y position (row) of the cell.
+     * @param colourIndex The palette index of the colour of the block.
+     * @param offsetX The left edge of the grid.
+     * @param offsetY The top edge of the grid.
+     */
+    public static void drawGhostCell(Graphics g, int x, int y, int colourIndex, int offsetX, int offsetY) {
+        drawSprite(g, BlockSprites.getSprite(g, colourIndex, true), x, y, offsetX, offsetY);
+    }
+
+    /**
+     * Copies a sprite into the given cell.
+     * @param g The graphics object.
+     * @param sprite The sprite.
+     * @param x The x position (column) of the cell.
+     * @param y The y position (row) of the cell.
+     * @param offsetX The left edge of the grid.
+     * @param offsetY The top edge of the grid.
+     */
+    private static void drawSprite(Graphics g, Image sprite, int x, int y, int offsetX, int offsetY) {
 
         //Calculate where to draw the block in relation to the grid.
         //Do this by multiplying the 'cell position' by the size of each block/cell.
@@ -57,12 +112,35 @@ public class Block {
         realX += offsetX + 2;
         realY += offsetY + 2;
 
-        //Draw the block in the calculated position with the right colour.
+        //The sprite may have been drawn at a higher resolution, so fit it into the size of a block.
+        g.drawImage(sprite, realX, realY, getSpriteWidth(), getSpriteHeight(), null);
+    }
+
+    /**
+     * Draws the shape of a block with the given colour, with its top left corner at x and y.
+     * Used to draw the sprites.
+     * @param g The graphics object.
+     * @param x The left edge.
+     * @param y The top edge.
+     * @param colour The colour of the block.
+     */
+    public static void paintShape(Graphics g, int x, int y, Color colour) {
         g.setColor(OUTLINE_COLOUR);
-        g.fillRoundRect(realX,realY,blockW-4,blockH-4,CORNER_SIZE,CORNER_SIZE);
+        g.fillRoundRect(x,y,blockW-4,blockH-4,CORNER_SIZE,CORNER_SIZE);
         g.setColor(colour);
-        g.fillRoundRect(realX+4,realY+4,blockW-12,blockH-12,CORNER_SIZE,CORNER_SIZE);
+        g.fillRoundRect(x+4,y+4,blockW-12,blockH-12,CORNER_SIZE,CORNER_SIZE);
+    }
 
+    /**
+     * Draws the shape of a ghost block, with its top left corner at x and y. Used to draw the sprites.
+     * @param g The graphics object.
+     * @param x The left edge.
+     * @param y The top edge.
+     * @param colourIndex The palette index of the colour of the block.
+     */
+    public static void paintGhostShape(Graphics g, int x, int y, int colourIndex) {
+        g.setColor(GHOST_PALETTE[colourIndex]);
+        g.fillRoundRect(x,y,blockW-4,blockH-4,CORNER_SIZE,CORNER_SIZE);
     }
 
     /*  Getters and Setters */
@@ -103,6 +181,41 @@ public class Block {
         return colour;
     }
 
+    public int getColourIndex() {
+        return colourIndex;
+    }
+
+    /**
+     * Returns the colour at the given index of the palette.
+     * @param index The index.
+     * @return The colour.
+     */
+    public static Color getPaletteColour(int index) {
+        return PALETTE[index];
+    }
+
+    /**
+     * Returns the index of the colour in the palette.
+     * @param colour The colour.
+     * @return The index, or 0 if the colour is not in the palette.
+     */
+    public static int getPaletteIndex(Color colour) {
+        for (int i = 0; i < PALETTE.length; i ++) {
+            if (PALETTE[i].equals(colour)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the number of colours in the palette.
+     * @return The number of colours.
+     */
+    public static int getPaletteSize() {
+        return PALETTE.length;
+    }
+
     /**
      * Returns the width of each block.
      * @return The width.
@@ -118,4 +231,20 @@ public class Block {
     public static int getBlockHeight() {
     	return blockH;
     }
+
+    /**
+     * Returns the width of the drawn part of a block, which leaves a small gap around the edges of the cell.
+     * @return The width.
+     */
+    public static int getSpriteWidth() {
+        return blockW-4;
+    }
+
+    /**
+     * Returns the height of the drawn part of a block.
+     * @return The height.
+     */
+    public static int getSpriteHeight() {
+        return blockH-4;
+    }
 }
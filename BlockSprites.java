@@ -0,0 +1,112 @@
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+/**
+ * Cache of pre-drawn block images ('sprites'), one for each colour in the block palette, plus a see-through 'ghost'
+ * version of each. Drawing a rounded block shape is slow, so each one is drawn once into an image that the graphics
+ * card can hold on to, and from then on blocks are drawn by copying that image.
+ *
+ * The sprites are drawn at the scale of the screen they are drawn on, so they are drawn again if that scale changes.
+ * They should also be thrown away by calling invalidate() if the palette or the look of the blocks changes.
+ * Like the rest of the drawing code, this class should only be used from the thread that draws.
+ */
+public class BlockSprites {
+
+    //The sprites. The first half are the normal blocks and the second half are the ghosts, in palette order.
+    private static Image[] sprites = null;
+    //The scale that the sprites were drawn at.
+    private static double spriteScale = 0;
+
+    /**
+     * Gets the sprite of a block.
+     * @param g The graphics object that the sprite will be drawn with.
+     * @param colourIndex The palette index of the colour of the block.
+     * @param ghost True for the see-through ghost version of the block.
+     * @return The sprite.
+     */
+    public static Image getSprite(Graphics g, int colourIndex, boolean ghost) {
+        double scale = getScale(g);
+        if (sprites == null || scale != spriteScale) {
+            createSprites(g, scale);
+        }
+        if (ghost == true) {
+            return sprites[Block.getPaletteSize() + colourIndex];
+        }
+        return sprites[colourIndex];
+    }
+
+    /**
+     * Gets the scale that the graphics object draws at. It is usually 1, unless the screen is high resolution.
+     * @param g The graphics object.
+     * @return The scale.
+     */
+    public static double getScale(Graphics g) {
+        if (g instanceof Graphics2D) {
+            AffineTransform transform = ((Graphics2D) g).getTransform();
+            return Math.max(1, transform.getScaleX());
+        }
+        return 1;
+    }
+
+    /**
+     * Throws away all of the sprites, so that they will be drawn again the next time that they are needed.
+     */
+    public static void invalidate() {
+        sprites = null;
+    }
+
+    /**
+     * Draws all of the sprites.
+     * @param g The graphics object that the sprites will be drawn with.
+     * @param scale The scale to draw them at.
+     */
+    private static void createSprites(Graphics g, double scale) {
+        int paletteSize = Block.getPaletteSize();
+        int w = (int) Math.ceil(Block.getSpriteWidth()*scale);
+        int h = (int) Math.ceil(Block.getSpriteHeight()*scale);
+
+        Image[] newSprites = new Image[paletteSize*2];
+        for (int i = 0; i < paletteSize; i ++) {
+            newSprites[i] = createSprite(g, w, h, scale, i, false);
+            newSprites[paletteSize + i] = createSprite(g, w, h, scale, i, true);
+        }
+        sprites = newSprites;
+        spriteScale = scale;
+    }
+
+    /**
+     * Draws a single sprite into a new image.
+     * @param g The graphics object that the sprite will be drawn with.
+     * @param w The width of the image.
+     * @param h The height of the image.
+     * @param scale The scale to draw at.
+     * @param colourIndex The palette index of the colour of the block.
+     * @param ghost True for the see-through ghost version of the block.
+     * @return The image.
+     */
+    private static Image createSprite(Graphics g, int w, int h, double scale, int colourIndex, boolean ghost) {
+        //Use an image that suits the screen, so that it can be copied quickly.
+        Image image = null;
+        if (g instanceof Graphics2D) {
+            GraphicsConfiguration configuration = ((Graphics2D) g).getDeviceConfiguration();
+            if (configuration != null) {
+                image = configuration.createCompatibleImage(w, h, Transparency.TRANSLUCENT);
+            }
+        }
+        if (image == null) {
+            image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        Graphics2D imageGraphics = (Graphics2D) image.getGraphics();
+        imageGraphics.scale(scale, scale);
+        if (ghost == true) {
+            Block.paintGhostShape(imageGraphics, 0, 0, colourIndex);
+        }
+        else {
+            Block.paintShape(imageGraphics, 0, 0, Block.getPaletteColour(colourIndex));
+        }
+        imageGraphics.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,375 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * This class stores all of the blocks that have landed on a grid, in a bit-packed form.
+ *
+ * Each row is stored as a single int mask: bit c is set when the cell in column c of that row is filled.
+ * The colour of every filled cell is stored separately, as an index into the block palette (see Block).
+ * Because of this, checking whether a row is full is a single compare, and deleting a row is just a copy of
+ * a few ints, no matter how many blocks are on the board.
+ *
+ * The board also keeps a Zobrist hash of which cells are filled: every cell has a random 64 bit key, and the hash is
+ * the XOR of the keys of the filled cells. It is kept up to date as cells are filled and rows are moved, so it only
+ * costs a few XORs per change, and two boards with the same cells filled have the same hash, however they got there.
+ * The colours are not part of the hash.
+ */
+public class Board {
+
+    //The number of rows and columns.
+    private int rows, columns;
+
+    //One mask per row. Bit c of rowMasks[r] is set when the cell at column c, row r is filled.
+    private int[] rowMasks;
+
+    //The colour of each cell, stored as (palette index + 1), so that 0 means the cell is empty.
+    //The colour of the cell at column c, row r is stored at index r*columns + c.
+    private byte[] colours;
+
+    //The skyline: the top most filled row of each column, or 'rows' if the column is empty.
+    private int[] columnTops;
+
+    //The mask of a row that is completely filled.
+    private int fullRowMask;
+
+    //Scratch space used to collect the rows cleared by clearFullRows.
+    private int[] clearedRows;
+
+    //Returned when no rows are cleared.
+    final private static int[] NO_ROWS = new int[0];
+
+    //The most columns that fit in a row mask.
+    final private static int MAX_COLUMNS = 32;
+
+    //The seed of the Zobrist keys. It is fixed, so that boards of the same size always have the same hash for the
+    //same cells.
+    final private static long ZOBRIST_SEED = 0x5A0B5157L;
+
+    //The Zobrist key of each cell, at index row*MAX_COLUMNS + column, and the hash of the filled cells.
+    private long[] cellKeys;
+    private long hash = 0;
+
+    /**
+     * Constructor. Creates an empty board.
+     * @param columns The number of columns.
+     * @param rows The number of rows.
+     */
+    public Board(int columns, int rows) {
+        if (columns > MAX_COLUMNS) {
+            throw new IllegalArgumentException("A board can have at most " + MAX_COLUMNS + " columns.");
+        }
+        this.columns = columns;
+        this.rows = rows;
+
+        rowMasks = new int[rows];
+        colours = new byte[rows*columns];
+        clearedRows = new int[rows];
+        columnTops = new int[columns];
+        Arrays.fill(columnTops, rows);
+
+        cellKeys = new long[rows*MAX_COLUMNS];
+        SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+        for (int i = 0; i < cellKeys.length; i ++) {
+            cellKeys[i] = random.nextLong();
+        }
+
+        //Set the lowest 'columns' bits.
+        if (columns == MAX_COLUMNS) {
+            fullRowMask = -1;
+        }
+        else {
+            fullRowMask = (1 << columns) - 1;
+        }
+    }
+
+    /**
+     * Checks to see if the cell is filled. Cells outside of the board are never filled.
+     * @param column The column of the cell.
+     * @param row The row of the cell.
+     * @return True for yes, false for no.
+     */
+    public boolean isFilled(int column, int row) {
+        if (column < 0 || column >= columns || row < 0 || row >= rows) {
+            return false;
+        }
+        return ((rowMasks[row] >>> column) & 1) != 0;
+    }
+
+    /**
+     * Checks to see if the cell is blocked: it is past the sides or the bottom of the board, or it is filled.
+     * Cells above the top of the board are not blocked, since game pieces start off above it.
+     * @param column The column of the cell.
+     * @param row The row of the cell.
+     * @return True for yes, false for no.
+     */
+    public boolean isBlocked(int column, int row) {
+        if (column < 0 || column >= columns || row >= rows) {
+            return true;
+        }
+        if (row < 0) {
+            return false;
+        }
+        return ((rowMasks[row] >>> column) & 1) != 0;
+    }
+
+    /**
+     * Fills the cell with the given colour. Cells outside of the board are ignored.
+     * @param column The column of the cell.
+     * @param row The row of the cell.
+     * @param colourIndex The palette index of the colour.
+     */
+    public void fillCell(int column, int row, int colourIndex) {
+        if (column < 0 || column >= columns || row < 0 || row >= rows) {
+            return;
+        }
+        if ((rowMasks[row] & (1 << column)) == 0) {
+            hash ^= cellKeys[row*MAX_COLUMNS + column];
+        }
+        rowMasks[row] |= 1 << column;
+        colours[row*columns + column] = (byte) (colourIndex + 1);
+        if (row < columnTops[column]) {
+            columnTops[column] = row;
+        }
+    }
+
+    /**
+     * Gets the palette index of the colour of a cell.
+     * @param column The column of the cell.
+     * @param row The row of the cell.
+     * @return The palette index, or -1 if the cell is empty.
+     */
+    public int getColourIndex(int column, int row) {
+        return colours[row*columns + column] - 1;
+    }
+
+    /**
+     * Checks to see if every cell in the row is filled.
+     * @param row The row to check.
+     * @return True for yes, false for no.
+     */
+    public boolean isRowFull(int row) {
+        return rowMasks[row] == fullRowMask;
+    }
+
+    /**
+     * Checks to see if there is at least one filled cell in the row.
+     * @param row The row to check.
+     * @return True for yes, false for no.
+     */
+    public boolean isRowEmpty(int row) {
+        return rowMasks[row] == 0;
+    }
+
+    /**
+     * Empties every cell in the row.
+     * @param row The row to empty.
+     */
+    public void clearRow(int row) {
+        emptyRow(row);
+        updateColumnTops();
+    }
+
+    /**
+     * Empties every cell in the row, without updating the skyline.
+     * @param row The row to empty.
+     */
+    private void emptyRow(int row) {
+        hash ^= getRowHash(row, rowMasks[row]);
+        rowMasks[row] = 0;
+        Arrays.fill(colours, row*columns, (row+1)*columns, (byte) 0);
+    }
+
+    /**
+     * Moves every row above the given row down by one. The given row is overwritten, and the top row becomes empty.
+     * @param row The row that was just deleted.
+     */
+    public void dropRowsAbove(int row) {
+        for (int toRow = row; toRow > 0; toRow --) {
+            moveRow(toRow - 1, toRow);
+        }
+        emptyRow(0);
+        updateColumnTops();
+    }
+
+    /**
+     * Deletes every full row at or below firstRow, and moves the remaining rows down to fill the gaps.
+     * This is done in a single pass from the bottom up, no matter how many rows are full.
+     * @param firstRow The topmost row that may be deleted.
+     * @return The deleted rows, from top to bottom. Empty if no rows were deleted.
+     */
+    public int[] clearFullRows(int firstRow) {
+        int cleared = 0;
+        //The row that the next surviving row is moved into.
+        int writeRow = rows - 1;
+        for (int readRow = rows - 1; readRow >= 0; readRow --) {
+            //Skip over full rows, so that they are overwritten.
+            if (readRow >= firstRow && rowMasks[readRow] == fullRowMask) {
+                cleared ++;
+                clearedRows[rows - cleared] = readRow;
+                continue;
+            }
+            //Move the row down past all the full rows below it.
+            if (writeRow != readRow) {
+                moveRow(readRow, writeRow);
+            }
+            writeRow --;
+        }
+
+        if (cleared == 0) {
+            return NO_ROWS;
+        }
+
+        //The rows at the top are now empty.
+        for (int row = 0; row <= writeRow; row ++) {
+            emptyRow(row);
+        }
+        updateColumnTops();
+        return Arrays.copyOfRange(clearedRows, rows - cleared, rows);
+    }
+
+    /**
+     * Empties the whole board.
+     */
+    public void clear() {
+        Arrays.fill(rowMasks, 0);
+        Arrays.fill(colours, (byte) 0);
+        Arrays.fill(columnTops, rows);
+        hash = 0;
+    }
+
+    /**
+     * Copies a row over another one. The row it is copied from is left as it is.
+     * @param fromRow The row to copy.
+     * @param toRow The row to overwrite.
+     */
+    private void moveRow(int fromRow, int toRow) {
+        hash ^= getRowHash(toRow, rowMasks[toRow]) ^ getRowHash(toRow, rowMasks[fromRow]);
+        rowMasks[toRow] = rowMasks[fromRow];
+        System.arraycopy(colours, fromRow*columns, colours, toRow*columns, columns);
+    }
+
+    /**
+     * Works out the part of the hash that comes from one row: the XOR of the keys of the cells filled in the mask.
+     * @param row The row.
+     * @param mask The filled cells of the row.
+     * @return The hash of the row.
+     */
+    private long getRowHash(int row, int mask) {
+        long rowHash = 0;
+        while (mask != 0) {
+            rowHash ^= cellKeys[row*MAX_COLUMNS + Integer.numberOfTrailingZeros(mask)];
+            mask &= mask - 1;
+        }
+        return rowHash;
+    }
+
+    /**
+     * Finds the top most filled row of every column again. Needs to be called after rows are removed.
+     * Goes down the rows from the top, and stops as soon as the top of every column has been found.
+     */
+    private void updateColumnTops() {
+        Arrays.fill(columnTops, rows);
+        //The columns whose top has not been found yet.
+        int remaining = fullRowMask;
+        for (int row = 0; row < rows && remaining != 0; row ++) {
+            int found = rowMasks[row] & remaining;
+            remaining &= ~found;
+            while (found != 0) {
+                columnTops[Integer.numberOfTrailingZeros(found)] = row;
+                found &= found - 1;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of rows that a single block in the given cell can fall before it lands on a filled cell or
+     * the bottom of the board. When the block is above the skyline, this is a single lookup. Otherwise (the block
+     * is under an overhang), the cells below it are checked one by one.
+     * @param column The column of the block.
+     * @param row The row of the block.
+     * @return The number of rows.
+     */
+    public int getDropDistance(int column, int row) {
+        int top = columnTops[column];
+        if (row < top) {
+            return top - 1 - row;
+        }
+        int distance = 0;
+        while (isBlocked(column, row + distance + 1) == false) {
+            distance ++;
+        }
+        return distance;
+    }
+
+    /*  Getters */
+
+    /**
+     * Gets the mask of a row. Bit c is set when the cell in column c is filled.
+     * @param row The row.
+     * @return The mask.
+     */
+    public int getRowMask(int row) {
+        return rowMasks[row];
+    }
+
+    /**
+     * Copies all of the cells of the board into the given arrays, in the same form as they are stored in the board.
+     * @param rowMasksCopy Receives the mask of each row. Must have a length of at least getRows().
+     * @param coloursCopy Receives the colour of each cell, as (palette index + 1), at index row*columns + column.
+     *                    Must have a length of at least getRows()*getColumns().
+     */
+    public void copyCells(int[] rowMasksCopy, byte[] coloursCopy) {
+        System.arraycopy(rowMasks, 0, rowMasksCopy, 0, rows);
+        System.arraycopy(colours, 0, coloursCopy, 0, colours.length);
+    }
+
+    /**
+     * Replaces all of the cells of the board with the given ones, in the same form as copyCells gives them.
+     * @param newRowMasks The mask of each row.
+     * @param newColours The colour of each cell, as (palette index + 1), at index row*columns + column.
+     */
+    public void setCells(int[] newRowMasks, byte[] newColours) {
+        System.arraycopy(newRowMasks, 0, rowMasks, 0, rows);
+        System.arraycopy(newColours, 0, colours, 0, colours.length);
+        hash = 0;
+        for (int row = 0; row < rows; row ++) {
+            hash ^= getRowHash(row, rowMasks[row]);
+        }
+        updateColumnTops();
+    }
+
+    /**
+     * Gets the top most filled row of the column.
+     * @param column The column.
+     * @return The row, or the number of rows if the column is empty.
+     */
+    public int getColumnTop(int column) {
+        return columnTops[column];
+    }
+
+    /**
+     * Gets the height of the column: the number of rows from the bottom of the board to its top most filled cell.
+     * @param column The column.
+     * @return The height.
+     */
+    public int getColumnHeight(int column) {
+        return rows - columnTops[column];
+    }
+
+    /**
+     * Gets the Zobrist hash of the filled cells. Boards of the same size with the same cells filled always have the
+     * same hash.
+     * @return The hash.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+}
@@ -1,5 +1,4 @@
 import java.awt.Color;
-import java.awt.FontMetrics;
 import java.awt.Graphics;
 
 /**
@@ -13,6 +12,9 @@ public class Button extends TextComponent {
 	private Color primaryColour;
 	private Color secondaryColour;
 
+	//The laid out button text, so that it does not need to be measured every time it is drawn.
+	private TextLabel label;
+
 	/**
 	 * Constructor.
 	 * @param x The left edge.
@@ -30,6 +32,7 @@ public class Button extends TextComponent {
 		this.secondaryColour = secondaryColour;
 		setCornerSize(40);
 		setClickable(true);
+		label = new TextLabel(text, getTextFont());
 	}
 	
 	/**
@@ -80,20 +83,19 @@ public class Button extends TextComponent {
 	 */
 	private void drawButtonText(Graphics g) {
 		
-		//Set colour and font.
+		//Set colour. The label is only laid out again if the text or font has changed.
 		g.setColor(getTextColour());
-		g.setFont(getTextFont());
+		label.setText(getText());
+		label.setFont(getTextFont());
 		
 		//Calculate the width of the button text.
-		//Method obtained by online reference.
-		FontMetrics fontMetrics = g.getFontMetrics(getTextFont());
-		int textWidth = fontMetrics.stringWidth(getText());
+		int textWidth = label.getWidth(g);
 		
 		//Get the center of the button.
 		int centerX = getX()+(getW()/2);
 		int centerY = getY()+(getH()/2);
 		
 		//Draw the text in the center of the button.
-		g.drawString(getText(), centerX-(textWidth/2), centerY);
+		label.draw(g, centerX-(textWidth/2), centerY);
 	}
 }
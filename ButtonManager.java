@@ -9,6 +9,16 @@ public class ButtonManager extends TextComponentManager {
 
 	private boolean clickable;
 
+	//Where to report the buttons that change how they look, so they can be repainted. Null if nobody needs to know.
+	private DirtyRegion dirtyRegion = null;
+
+	//Finds the button under the mouse. It is rebuilt the next time it is needed, whenever the buttons change.
+	private HitTestIndex hitTestIndex = new HitTestIndex();
+	private boolean rebuildIndex = true;
+
+	//The button that the mouse is hovering over, or null if none.
+	private TextComponent hoveredButton = null;
+
 	public ButtonManager() {
 		clickable = true;
 	}
@@ -23,33 +33,71 @@ public class ButtonManager extends TextComponentManager {
 	 * @return The clicked button.
 	 */
 	public TextComponent getClickedButton(MouseEvent e) {
-		//Loop through buttons, return first one being clicked on by mouse.
-		for (int i = 0; i < getComponents().size(); i ++) {
-			TextComponent button = getComponents().get(i);
-			boolean mouseOver = button.checkMouseOver(e);
-			//Return the reference to the button.
-			if (mouseOver == true) {
-				return button;
-			}
-		}
 		//Returns null if no button is being clicked.
-		return null;
+		return getButtonAt(e);
 	}
 
 	/**
 	 * Check whether or not the mouse is hovering over the buttons. Set the state of
 	 * the button accordingly.
+	 * Only the buttons that the mouse has just moved onto or off of change; if the mouse is still over the same
+	 * button (or still over no button), nothing happens at all.
 	 * @param e The mouse event.
 	 */
 	public void updateButtonStates(MouseEvent e) {
-		//Loop through each button.
-		for (int i = 0; i < getComponents().size(); i ++) {
-			if (clickable == false) {
-				getComponents().get(i).setClickable(false);
-			}
-			//Check to see if the mouse is over the button, and update the state accordingly.
-			getComponents().get(i).checkMouseOver(e);
+		if (clickable == false) {
+			setClickable(false);
+		}
+
+		TextComponent button = getButtonAt(e);
+		if (button == hoveredButton) {
+			return;
 		}
+
+		//The mouse left the old button, and entered the new one. Repaint them, since they look different now.
+		if (hoveredButton != null) {
+			hoveredButton.setMouseOver(false);
+			markDirty(hoveredButton);
+		}
+		if (button != null) {
+			button.setMouseOver(true);
+			markDirty(button);
+		}
+		hoveredButton = button;
+	}
+
+	/**
+	 * Finds the button under the mouse.
+	 * @param e The mouse event.
+	 * @return The button, or null if there is none.
+	 */
+	private TextComponent getButtonAt(MouseEvent e) {
+		if (rebuildIndex == true) {
+			hitTestIndex.build(getComponents());
+			rebuildIndex = false;
+		}
+		return hitTestIndex.getComponentAt(e.getX(), e.getY());
+	}
+
+	@Override
+	public void addComponent(TextComponent textComponent) {
+		super.addComponent(textComponent);
+		rebuildIndex = true;
+	}
+
+	@Override
+	public void removeAllComponents() {
+		super.removeAllComponents();
+		rebuildIndex = true;
+		hoveredButton = null;
+	}
+
+	/**
+	 * Must be called if any of the buttons move or change size, so that the mouse is checked against where they are
+	 * now.
+	 */
+	public void invalidateIndex() {
+		rebuildIndex = true;
 	}
 
 	/**
@@ -71,7 +119,24 @@ public class ButtonManager extends TextComponentManager {
 	 */
 	public void setClickable(boolean clickable) {
 		for (TextComponent button : getComponents()) {
-			button.setClickable(clickable);
+			if (button.isClickable() != clickable) {
+				button.setClickable(clickable);
+				markDirty(button);
+			}
+		}
+	}
+
+	/**
+	 * Reports that the button has changed how it looks, so that it will be repainted.
+	 * @param button The button.
+	 */
+	private void markDirty(TextComponent button) {
+		if (dirtyRegion != null) {
+			dirtyRegion.add(button.getX(), button.getY(), button.getW(), button.getH());
 		}
 	}
+
+	public void setDirtyRegion(DirtyRegion dirtyRegion) {
+		this.dirtyRegion = dirtyRegion;
+	}
 }
@@ -0,0 +1,103 @@
+import java.awt.Component;
+
+/**
+ * Keeps track of which parts of the screen have changed ('dirty' rectangles) since the last time the screen was
+ * repainted, so that only those parts need to be repainted.
+ *
+ * Anything that changes what is on the screen (a grid, a game piece, a button...) should add the rectangle that it
+ * changed. Then, repaint() asks the component to repaint just those rectangles, and starts over.
+ * Only a few rectangles are stored; if there are more than that, the rectangles are merged together.
+ */
+public class DirtyRegion {
+
+    //The most rectangles that are stored before they start being merged.
+    final private static int MAX_RECTANGLES = 16;
+
+    //The left, top, right and bottom edges of each rectangle.
+    private int[] left = new int[MAX_RECTANGLES];
+    private int[] top = new int[MAX_RECTANGLES];
+    private int[] right = new int[MAX_RECTANGLES];
+    private int[] bottom = new int[MAX_RECTANGLES];
+    //The number of rectangles stored.
+    private int count = 0;
+
+    //True if everything needs to be repainted.
+    private boolean allDirty = false;
+
+    /**
+     * Adds a rectangle that needs to be repainted.
+     * @param x The left edge.
+     * @param y The top edge.
+     * @param w The width.
+     * @param h The height.
+     */
+    public void add(int x, int y, int w, int h) {
+        if (allDirty == true || w <= 0 || h <= 0) {
+            return;
+        }
+
+        //If the rectangle is inside of one that is already stored, there is nothing to do.
+        for (int i = 0; i < count; i ++) {
+            if (x >= left[i] && y >= top[i] && x + w <= right[i] && y + h <= bottom[i]) {
+                return;
+            }
+        }
+
+        //Out of space: merge all of the rectangles into the first one.
+        if (count == MAX_RECTANGLES) {
+            for (int i = 1; i < count; i ++) {
+                left[0] = Math.min(left[0], left[i]);
+                top[0] = Math.min(top[0], top[i]);
+                right[0] = Math.max(right[0], right[i]);
+                bottom[0] = Math.max(bottom[0], bottom[i]);
+            }
+            count = 1;
+        }
+
+        left[count] = x;
+        top[count] = y;
+        right[count] = x + w;
+        bottom[count] = y + h;
+        count ++;
+    }
+
+    /**
+     * Marks everything as needing to be repainted.
+     */
+    public void addAll() {
+        allDirty = true;
+        count = 0;
+    }
+
+    /**
+     * Checks to see if nothing needs to be repainted.
+     * @return True for yes, false for no.
+     */
+    public boolean isEmpty() {
+        return allDirty == false && count == 0;
+    }
+
+    /**
+     * Asks the component to repaint everything that has changed, and then starts over.
+     * @param component The component to repaint.
+     */
+    public void repaint(Component component) {
+        if (allDirty == true) {
+            component.repaint();
+        }
+        else {
+            for (int i = 0; i < count; i ++) {
+                component.repaint(left[i], top[i], right[i] - left[i], bottom[i] - top[i]);
+            }
+        }
+        clear();
+    }
+
+    /**
+     * Forgets about everything that has changed.
+     */
+    public void clear() {
+        allDirty = false;
+        count = 0;
+    }
+}
@@ -53,5 +53,10 @@ public class GUIMain implements Runnable{
 		
 		//Make the frame visible.
 		mainFrame.setVisible(true);
+
+		//Optionally, draw with a dedicated thread instead of Swing timers (run with -Dtetris.activeRendering=true).
+		if (Boolean.getBoolean("tetris.activeRendering") == true) {
+			panel.startActiveRendering(mainFrame);
+		}
 	}
 }
\ No newline at end of file
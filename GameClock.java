@@ -0,0 +1,73 @@
+/**
+ * A fixed timestep clock for the game logic. The time that really passes between updates is added up, and handed out
+ * in steps that are all exactly the same length. This way, the game runs at the same speed no matter how often, or
+ * how evenly, the clock is checked.
+ *
+ * The time left over that is not enough for a whole step can be used to draw things part of the way between two
+ * steps (see getAlpha).
+ */
+public class GameClock {
+
+    //The length of each step, in nanoseconds.
+    private long stepTime;
+
+    //The time at which the clock was last checked, or -1 if it has not been checked since it was reset.
+    private long lastTime = -1;
+    //The time that has passed, but that has not been handed out in steps yet.
+    private long leftOverTime = 0;
+
+    //The most time that is handed out at once. If the program stalls for longer than this (for example, while
+    //the window is being dragged), the game slows down instead of trying to catch up all at once.
+    final private static long MAX_ELAPSED_TIME = 250000000L;
+
+    /**
+     * Constructor.
+     * @param stepTime The length of each step, in nanoseconds.
+     */
+    public GameClock(long stepTime) {
+        this.stepTime = stepTime;
+    }
+
+    /**
+     * Checks the clock, and gets the number of whole steps that have passed since it was last checked.
+     * @param currentTime The current time, from System.nanoTime().
+     * @return The number of steps to run.
+     */
+    public int advance(long currentTime) {
+        if (lastTime < 0) {
+            lastTime = currentTime;
+            return 0;
+        }
+        leftOverTime += Math.min(currentTime - lastTime, MAX_ELAPSED_TIME);
+        lastTime = currentTime;
+
+        int steps = (int) (leftOverTime/stepTime);
+        leftOverTime -= steps*stepTime;
+        return steps;
+    }
+
+    /**
+     * Gets how far the clock is between the last step and the next one.
+     * @return A number from 0 (just after the last step) to 1 (just before the next one).
+     */
+    public double getAlpha() {
+        return leftOverTime/(double) stepTime;
+    }
+
+    /**
+     * Gets the time that has passed since the end of the last step.
+     * @return The time, in nanoseconds.
+     */
+    public long getLeftOverTime() {
+        return leftOverTime;
+    }
+
+    /**
+     * Resets the clock, so that the time until it is next checked does not count. Needs to be called after the game
+     * has been paused.
+     */
+    public void reset() {
+        lastTime = -1;
+        leftOverTime = 0;
+    }
+}
@@ -0,0 +1,710 @@
+/**
+ * Class that contains the rules of the game. It owns the game grid, the current and next game pieces, the score and
+ * whether or not the game is over.
+ *
+ * It does not depend on Swing or on any timer: the game only moves forward when step(), tick() or apply() is called.
+ * The GamePanel calls them from its game clock and key events, but they can also be called in a loop as fast as the
+ * CPU allows, for example to simulate games on a machine without a display.
+ *
+ * Every random choice (the shape, colour and orientation of each game piece) comes from a PieceGenerator, so a game
+ * started with a generator from a known seed can be played again exactly.
+ *
+ * Time in the game is measured in steps of a fixed length (STEP_TIME). Gravity drops the current game piece by one
+ * cell every time the drop time adds up, so the game runs the same no matter how often the steps actually happen.
+ *
+ * Keys can either be applied once each with apply(), or be held down with press() and release(). While left or right
+ * is held, the game piece moves once, waits for the 'delayed auto shift' (DAS) time, and then keeps moving once every
+ * 'auto repeat rate' (ARR) time; an ARR of 0 slides it all the way to the wall at once. While down is held, the game
+ * piece keeps dropping at the soft drop rate. All of this is timed in game time, so it does not depend on how fast the
+ * keyboard repeats keys, or on how often the game is drawn.
+ *
+ * A game can be recorded while it is played (see setRecorder and ReplayRecorder), and the whole state of the game can
+ * be saved and put back with createKeyframe() and restore().
+ */
+public class GameEngine {
+
+    //The inputs that a player can give to the game.
+    public enum Input {LEFT, RIGHT, DOWN, ROTATE, HARD_DROP};
+
+    //The main game grid.
+    private Grid gameGrid;
+    //The side grid that holds the next game piece.
+    private Grid sideGrid;
+
+    //The game pieces, and what chooses them.
+    private GamePiece currentGamePiece;
+    private GamePiece nextGamePiece;
+    private PieceGenerator pieceGenerator;
+
+    //The score.
+    private int score;
+    //The number of lines cleared.
+    private int linesCleared;
+    //The number of game pieces that have landed.
+    private int piecesPlaced;
+    //Whether or not the game is over.
+    private boolean gameOver;
+
+    //How long to wait before dropping game piece again by one cell, in nanoseconds.
+    private long dropTime = DEFAULT_DROP_TIME;
+    //The time that has passed since the game piece last dropped because of gravity.
+    private long gravityTime;
+    //The game time at the start of the current step, in nanoseconds since the game started.
+    private long time;
+
+    //Auto shift settings, in nanoseconds: how long left or right needs to be held before the game piece starts
+    //repeating the move, how long to wait between repeats, and how long to wait between drops while down is held.
+    private long autoShiftDelay = DEFAULT_AUTO_SHIFT_DELAY;
+    private long autoRepeatRate = DEFAULT_AUTO_REPEAT_RATE;
+    private long softDropRate = DEFAULT_SOFT_DROP_RATE;
+
+    //Which of the keys are held down.
+    private boolean leftHeld, rightHeld, downHeld;
+    //The direction that is being auto shifted in (-1 for left, 1 for right, 0 for none), when that key was pressed,
+    //and how many times it has repeated since.
+    private int shiftDirection;
+    private long shiftPressTime;
+    private long shiftRepeats;
+    //When down was pressed, and how many times the game piece has dropped since.
+    private long downPressTime;
+    private long softDrops;
+
+    //Records the inputs of the game, if it is being recorded.
+    private ReplayRecorder recorder = null;
+
+    //The length of a single step of the game, in nanoseconds (60 steps per second).
+    final public static long STEP_TIME = 1000000000L/60;
+    //Key presses and releases are timed to the nearest microsecond below, so that a recording of the game can store
+    //them exactly.
+    final public static long INPUT_TIME_RESOLUTION = 1000;
+    //The default drop time, in nanoseconds.
+    final private static long DEFAULT_DROP_TIME = 500000000L;
+    //The default auto shift settings, in nanoseconds.
+    final private static long DEFAULT_AUTO_SHIFT_DELAY = 170000000L;
+    final private static long DEFAULT_AUTO_REPEAT_RATE = 50000000L;
+    final private static long DEFAULT_SOFT_DROP_RATE = 50000000L;
+
+    //The points awarded for clearing 0, 1, 2, 3 or 4 lines at once.
+    final private static int[] LINE_POINTS = {0, 1, 2, 3, 4};
+
+    //The size, in cells, of the side grid.
+    final private static int SIDE_GRID_SIZE = 4;
+
+    /**
+     * Constructor. Starts a new game on the given grids.
+     * @param gameGrid The grid in which the game is played.
+     * @param sideGrid The grid that holds the next game piece.
+     * @param pieceGenerator Chooses the game pieces. Two games with generators in the same state, and the same inputs
+     *                       at the same times, play out exactly the same.
+     */
+    public GameEngine(Grid gameGrid, Grid sideGrid, PieceGenerator pieceGenerator) {
+        this.gameGrid = gameGrid;
+        this.sideGrid = sideGrid;
+        this.pieceGenerator = pieceGenerator;
+        start();
+    }
+
+    /**
+     * Constructor. Starts a new game on grids of the given size. Used when there is nothing to draw the game on.
+     * @param columns The number of columns in the game grid.
+     * @param rows The number of rows in the game grid.
+     * @param pieceGenerator Chooses the game pieces.
+     */
+    public GameEngine(int columns, int rows, PieceGenerator pieceGenerator) {
+        this(new Grid(0, 0, columns*Block.getBlockWidth(), rows*Block.getBlockHeight()),
+                new Grid(0, 0, SIDE_GRID_SIZE*Block.getBlockWidth(), SIDE_GRID_SIZE*Block.getBlockHeight()),
+                pieceGenerator);
+    }
+
+    /**
+     * Constructor. Starts a new game on grids of the given size, with game pieces chosen the way the game always has:
+     * any shape, colour and orientation, from a seed that is different every time.
+     * @param columns The number of columns in the game grid.
+     * @param rows The number of rows in the game grid.
+     */
+    public GameEngine(int columns, int rows) {
+        this(columns, rows, new UniformPieceGenerator(System.nanoTime()));
+    }
+
+    /**
+     * Resets everything and starts a new game. The game pieces carry on from where the piece generator is; to play
+     * the same game pieces again, use a new generator with the same seed (see setPieceGenerator).
+     */
+    public void start() {
+        gameGrid.removeAllBlocks();
+        sideGrid.removeAllBlocks();
+
+        //Create the game piece that is next in line.
+        nextGamePiece = new GamePiece(sideGrid);
+        nextGamePiece.generateNewPiece(pieceGenerator);
+
+        //Create the first game piece.
+        currentGamePiece = new GamePiece(gameGrid);
+        currentGamePiece.generateNewPiece(pieceGenerator);
+
+        score = 0;
+        linesCleared = 0;
+        piecesPlaced = 0;
+        gameOver = false;
+        gravityTime = 0;
+        time = 0;
+        releaseAll();
+    }
+
+    /**
+     * Advances the game by one fixed step of time (STEP_TIME). If enough time has passed, gravity drops the current
+     * game piece by one cell.
+     */
+    public void step() {
+        if (gameOver == true) {
+            return;
+        }
+        long stepEnd = time + STEP_TIME;
+
+        //Repeat the keys that are held down.
+        updateAutoShift(stepEnd);
+        updateSoftDrop(stepEnd);
+
+        gravityTime += STEP_TIME;
+        if (gravityTime >= dropTime) {
+            gravityTime -= dropTime;
+            tick();
+        }
+        time = stepEnd;
+    }
+
+    /**
+     * Advances the game by one step of gravity: the current game piece drops by one cell.
+     */
+    public void tick() {
+        if (gameOver == false) {
+            dropGamePiece();
+        }
+    }
+
+    /**
+     * Applies an input from the player to the current game piece.
+     * @param input The input.
+     */
+    public void apply(Input input) {
+        if (gameOver == true) {
+            return;
+        }
+        if (recorder != null) {
+            recorder.recordApply(time/STEP_TIME, input);
+        }
+        move(input);
+    }
+
+    /**
+     * Moves the current game piece the way an input says to.
+     * @param input The input.
+     */
+    private void move(Input input) {
+        if (input == Input.LEFT) {
+            currentGamePiece.moveLeft();
+        }
+        else if (input == Input.RIGHT) {
+            currentGamePiece.moveRight();
+        }
+        else if (input == Input.DOWN) {
+            dropGamePiece();
+        }
+        else if (input == Input.ROTATE) {
+            currentGamePiece.rotate();
+        }
+        else if (input == Input.HARD_DROP) {
+            //Drop all the way down, and land right away.
+            currentGamePiece.dropToBottom();
+            dropGamePiece();
+            return;
+        }
+        //Make sure nothing is out of bounds.
+        currentGamePiece.stayWithinBounds();
+    }
+
+    /**
+     * A key was pressed down. Left, right and down are acted on right away, and then repeat for as long as they are
+     * held (see step()); rotate and hard drop only happen once. Pressing a key that is already held does nothing, so
+     * the keyboard`s own key repeat is ignored.
+     * @param input The input.
+     * @param pressTime When the key was pressed, in game time (see getTime()). Times outside of the current step are
+     *                  moved to its start or end.
+     */
+    public void press(Input input, long pressTime) {
+        if (gameOver == true) {
+            return;
+        }
+        pressTime = clampInputTime(pressTime);
+        if (recorder != null) {
+            recorder.recordPress(time/STEP_TIME, input, pressTime - time);
+        }
+
+        if (input == Input.LEFT || input == Input.RIGHT) {
+            int direction = input == Input.LEFT ? -1 : 1;
+            if ((direction == -1 && leftHeld == true) || (direction == 1 && rightHeld == true)) {
+                return;
+            }
+            if (direction == -1) {
+                leftHeld = true;
+            }
+            else {
+                rightHeld = true;
+            }
+            //The newest key wins.
+            shiftDirection = direction;
+            shiftPressTime = pressTime;
+            shiftRepeats = 0;
+            shift(direction);
+        }
+        else if (input == Input.DOWN) {
+            if (downHeld == true) {
+                return;
+            }
+            downHeld = true;
+            downPressTime = pressTime;
+            softDrops = 0;
+            dropGamePiece();
+        }
+        else {
+            move(input);
+        }
+    }
+
+    /**
+     * A key was released.
+     * @param input The input.
+     * @param releaseTime When the key was released, in game time (see getTime()).
+     */
+    public void release(Input input, long releaseTime) {
+        releaseTime = clampInputTime(releaseTime);
+        if (recorder != null) {
+            recorder.recordRelease(time/STEP_TIME, input, releaseTime - time);
+        }
+
+        if (input == Input.LEFT || input == Input.RIGHT) {
+            int direction = input == Input.LEFT ? -1 : 1;
+            if (direction == -1) {
+                leftHeld = false;
+            }
+            else {
+                rightHeld = false;
+            }
+            //If the other direction is still held, go back to it. It has to wait for the delay again.
+            if (shiftDirection == direction) {
+                shiftDirection = 0;
+                if (leftHeld == true || rightHeld == true) {
+                    shiftDirection = -direction;
+                    shiftPressTime = releaseTime;
+                    shiftRepeats = 0;
+                }
+            }
+        }
+        else if (input == Input.DOWN) {
+            downHeld = false;
+        }
+    }
+
+    /**
+     * Releases all of the keys. Needs to be called when key releases might have been missed, such as after pausing.
+     */
+    public void releaseAll() {
+        if (recorder != null) {
+            recorder.recordReleaseAll(time/STEP_TIME);
+        }
+        leftHeld = false;
+        rightHeld = false;
+        downHeld = false;
+        shiftDirection = 0;
+    }
+
+    /**
+     * Moves the time of a key press or release into the current step, and down to the nearest microsecond.
+     * @param inputTime The time, in game time.
+     * @return The time it is treated as happening at.
+     */
+    private long clampInputTime(long inputTime) {
+        long offset = Math.max(0, Math.min(STEP_TIME, inputTime - time));
+        return time + offset/INPUT_TIME_RESOLUTION*INPUT_TIME_RESOLUTION;
+    }
+
+    /**
+     * Moves the game piece in the auto shift direction as many times as it should have moved by the given time.
+     * @param now The game time.
+     */
+    private void updateAutoShift(long now) {
+        if (shiftDirection == 0) {
+            return;
+        }
+        long chargedTime = now - shiftPressTime - autoShiftDelay;
+        if (chargedTime < 0) {
+            return;
+        }
+        //Instant: slide all the way.
+        if (autoRepeatRate == 0) {
+            while (shift(shiftDirection) == true) {
+                shiftRepeats ++;
+            }
+            return;
+        }
+        long repeats = chargedTime/autoRepeatRate + 1;
+        while (shiftRepeats < repeats) {
+            shift(shiftDirection);
+            shiftRepeats ++;
+        }
+    }
+
+    /**
+     * Drops the game piece as many times as it should have dropped by the given time, if down is held.
+     * @param now The game time.
+     */
+    private void updateSoftDrop(long now) {
+        if (downHeld == false) {
+            return;
+        }
+        long drops = (now - downPressTime)/softDropRate;
+        while (softDrops < drops && gameOver == false) {
+            dropGamePiece();
+            softDrops ++;
+        }
+    }
+
+    /**
+     * Moves the game piece by one cell, left or right.
+     * @param direction -1 for left, 1 for right.
+     * @return True if it moved, false if it was blocked.
+     */
+    private boolean shift(int direction) {
+        if (gameOver == true) {
+            return false;
+        }
+        if (direction < 0) {
+            return currentGamePiece.moveLeft();
+        }
+        return currentGamePiece.moveRight();
+    }
+
+    /**
+     * Drop the gamepiece by one cell/row. Also detects when it has hit the bottom.
+     */
+    private void dropGamePiece() {
+        boolean canDropDown = currentGamePiece.moveDown();
+
+        //Land the game piece.
+        if (canDropDown == false) {
+            //Release all of the blocks that were formerly a part of the piece.
+            currentGamePiece.releaseGamePiece();
+            piecesPlaced ++;
+            //Use the next game piece.
+            currentGamePiece = nextGamePiece;
+            movePieceToGameGrid(currentGamePiece);
+
+            //Remove all blocks from the side grid panel.
+            sideGrid.removeAllBlocks();
+            //Generate a new piece that will be next in line.
+            nextGamePiece = new GamePiece(sideGrid);
+            nextGamePiece.generateNewPiece(pieceGenerator);
+
+            //Check to see if any line was formed. If yes, add to score and delete row.
+            checkLinesFormed();
+
+            //Check to see if any block landed in the terminal line. If yes, the game is over.
+            if (gameGrid.blockOnTerminalLine() == true) {
+                gameOver = true;
+            }
+        }
+    }
+
+    /**
+     * Move the current game piece to the game grid. GamePiece.getSpawnX and getSpawnY give where it ends up, without
+     * moving a game piece, so keep them the same as this.
+     * @param gamePiece The game piece to move.
+     */
+    private void movePieceToGameGrid(GamePiece gamePiece) {
+        //Change the grid from the sideGrid to the gameGrid.
+        gamePiece.changeGrid(gameGrid);
+
+        //Move up so that it initially starts outside and above of the game grid.
+        for (int i = 0; i < GamePiece.getSIZE(); i ++) {
+            gamePiece.moveUp();
+        }
+
+        //Center the game piece, as much as possible.
+        int gridWidth = gameGrid.getColumns();
+        int offsetX = (gridWidth-(4))/2;
+        for (int i = 0; i < offsetX; i ++) {
+            gamePiece.moveRight();
+        }
+    }
+
+    /**
+     * Checks to see if any horizontal lines were formed on the grid. If yes, they are all deleted at once, and
+     * points are added to the score.
+     */
+    private void checkLinesFormed() {
+        int[] clearedRows = gameGrid.clearFullRows();
+        if (clearedRows.length > 0) {
+            increaseScore(clearedRows.length);
+        }
+    }
+
+    /**
+     * Add to the score.
+     * @param lines The number of lines that were cleared at once.
+     */
+    private void increaseScore(int lines) {
+        linesCleared += lines;
+        score += LINE_POINTS[Math.min(lines, LINE_POINTS.length - 1)];
+    }
+
+    /*  Getters */
+
+    public Grid getGameGrid() {
+        return gameGrid;
+    }
+
+    public Grid getSideGrid() {
+        return sideGrid;
+    }
+
+    public GamePiece getCurrentGamePiece() {
+        return currentGamePiece;
+    }
+
+    public GamePiece getNextGamePiece() {
+        return nextGamePiece;
+    }
+
+    public PieceGenerator getPieceGenerator() {
+        return pieceGenerator;
+    }
+
+    /**
+     * Sets what chooses the game pieces from now on. The game pieces that were already chosen stay the same.
+     * @param pieceGenerator The piece generator.
+     */
+    public void setPieceGenerator(PieceGenerator pieceGenerator) {
+        this.pieceGenerator = pieceGenerator;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLinesCleared() {
+        return linesCleared;
+    }
+
+    public int getPiecesPlaced() {
+        return piecesPlaced;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * Gets the game time at the start of the current step.
+     * @return The time, in nanoseconds since the game started.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Gets how far along the game piece is until gravity next drops it.
+     * @param alpha How far along the current step is, from 0 to 1 (see GameClock).
+     * @return A number from 0 (it just dropped) to 1 (it is about to drop).
+     */
+    public double getGravityProgress(double alpha) {
+        return Math.min(1, (gravityTime + alpha*STEP_TIME)/dropTime);
+    }
+
+    /**
+     * Gets how long to wait before dropping the game piece again by one cell.
+     * @return The time, in nanoseconds.
+     */
+    public long getDropTime() {
+        return dropTime;
+    }
+
+    /**
+     * Sets how long to wait before dropping the game piece again by one cell.
+     * @param dropTime The time, in milliseconds.
+     */
+    public void setDropTime(int dropTime) {
+        this.dropTime = dropTime*1000000L;
+    }
+
+    /**
+     * Sets how held keys repeat.
+     * @param autoShiftDelay How long left or right needs to be held before it starts repeating, in milliseconds.
+     * @param autoRepeatRate How long to wait between repeats, in milliseconds. 0 moves all the way at once.
+     * @param softDropRate How long to wait between drops while down is held, in milliseconds. Must be more than 0.
+     */
+    public void setAutoShift(int autoShiftDelay, int autoRepeatRate, int softDropRate) {
+        this.autoShiftDelay = autoShiftDelay*1000000L;
+        this.autoRepeatRate = autoRepeatRate*1000000L;
+        this.softDropRate = Math.max(1, softDropRate)*1000000L;
+    }
+
+    /**
+     * Gets how long left or right needs to be held before it starts repeating.
+     * @return The time, in nanoseconds.
+     */
+    public long getAutoShiftDelay() {
+        return autoShiftDelay;
+    }
+
+    /**
+     * Gets how long to wait between repeats while left or right is held.
+     * @return The time, in nanoseconds.
+     */
+    public long getAutoRepeatRate() {
+        return autoRepeatRate;
+    }
+
+    /**
+     * Gets how long to wait between drops while down is held.
+     * @return The time, in nanoseconds.
+     */
+    public long getSoftDropRate() {
+        return softDropRate;
+    }
+
+    public ReplayRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Starts recording the game. Must be called before the first step of the game, and after the drop time and auto
+     * shift settings are set, since those are stored at the start of the recording.
+     * @param recorder The recorder, or null to stop recording.
+     */
+    public void setRecorder(ReplayRecorder recorder) {
+        if (recorder != null && (time != 0 || piecesPlaced != 0)) {
+            throw new IllegalStateException("A game can only be recorded from its start.");
+        }
+        this.recorder = recorder;
+        if (recorder != null) {
+            recorder.start(this);
+        }
+    }
+
+    /*  Keyframes */
+
+    /**
+     * The whole state of a game at the start of a step, apart from its piece generator. Putting it back with
+     * restore() carries on the game from that point exactly as it went the first time, as long as the piece generator
+     * is also put back to the same point (see ReplayPlayer).
+     */
+    public static class Keyframe {
+        //The landed blocks.
+        final private int[] rowMasks;
+        final private byte[] colours;
+        //The type, orientation, position and colour of the current and next game pieces.
+        final private int[] current;
+        final private int[] next;
+
+        final private int score, linesCleared, piecesPlaced;
+        final private boolean gameOver;
+        final private long dropTime, gravityTime, time;
+        final private long autoShiftDelay, autoRepeatRate, softDropRate;
+        final private boolean leftHeld, rightHeld, downHeld;
+        final private int shiftDirection;
+        final private long shiftPressTime, shiftRepeats, downPressTime, softDrops;
+
+        private Keyframe(GameEngine engine) {
+            Board board = engine.gameGrid.getBoard();
+            rowMasks = new int[board.getRows()];
+            colours = new byte[board.getRows()*board.getColumns()];
+            board.copyCells(rowMasks, colours);
+            current = savePiece(engine.currentGamePiece);
+            next = savePiece(engine.nextGamePiece);
+
+            score = engine.score;
+            linesCleared = engine.linesCleared;
+            piecesPlaced = engine.piecesPlaced;
+            gameOver = engine.gameOver;
+            dropTime = engine.dropTime;
+            gravityTime = engine.gravityTime;
+            time = engine.time;
+            autoShiftDelay = engine.autoShiftDelay;
+            autoRepeatRate = engine.autoRepeatRate;
+            softDropRate = engine.softDropRate;
+            leftHeld = engine.leftHeld;
+            rightHeld = engine.rightHeld;
+            downHeld = engine.downHeld;
+            shiftDirection = engine.shiftDirection;
+            shiftPressTime = engine.shiftPressTime;
+            shiftRepeats = engine.shiftRepeats;
+            downPressTime = engine.downPressTime;
+            softDrops = engine.softDrops;
+        }
+
+        private static int[] savePiece(GamePiece gamePiece) {
+            return new int[] {gamePiece.getType(), gamePiece.getOrientation(), gamePiece.getPieceX(),
+                    gamePiece.getPieceY(), gamePiece.getBlocks().get(0).getColourIndex()};
+        }
+
+        /**
+         * Gets the game time that the keyframe was saved at.
+         * @return The time, in nanoseconds since the game started.
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Gets the number of game pieces that had been chosen by the piece generator when the keyframe was saved.
+         * @return The number of game pieces.
+         */
+        public int getPiecesGenerated() {
+            //Two at the start, and one more every time a game piece lands.
+            return piecesPlaced + 2;
+        }
+    }
+
+    /**
+     * Saves the whole state of the game.
+     * @return The keyframe.
+     */
+    public Keyframe createKeyframe() {
+        return new Keyframe(this);
+    }
+
+    /**
+     * Puts the game back into a saved state. The piece generator is not changed.
+     * @param keyframe The keyframe, saved from a game on grids of the same size.
+     */
+    public void restore(Keyframe keyframe) {
+        gameGrid.removeAllBlocks();
+        sideGrid.removeAllBlocks();
+        gameGrid.getBoard().setCells(keyframe.rowMasks, keyframe.colours);
+        currentGamePiece = new GamePiece(gameGrid);
+        currentGamePiece.restore(keyframe.current[0], keyframe.current[1], keyframe.current[2], keyframe.current[3],
+                keyframe.current[4]);
+        nextGamePiece = new GamePiece(sideGrid);
+        nextGamePiece.restore(keyframe.next[0], keyframe.next[1], keyframe.next[2], keyframe.next[3],
+                keyframe.next[4]);
+
+        score = keyframe.score;
+        linesCleared = keyframe.linesCleared;
+        piecesPlaced = keyframe.piecesPlaced;
+        gameOver = keyframe.gameOver;
+        dropTime = keyframe.dropTime;
+        gravityTime = keyframe.gravityTime;
+        time = keyframe.time;
+        autoShiftDelay = keyframe.autoShiftDelay;
+        autoRepeatRate = keyframe.autoRepeatRate;
+        softDropRate = keyframe.softDropRate;
+        leftHeld = keyframe.leftHeld;
+        rightHeld = keyframe.rightHeld;
+        downHeld = keyframe.downHeld;
+        shiftDirection = keyframe.shiftDirection;
+        shiftPressTime = keyframe.shiftPressTime;
+        shiftRepeats = keyframe.shiftRepeats;
+        downPressTime = keyframe.downPressTime;
+        softDrops = keyframe.softDrops;
+    }
+}
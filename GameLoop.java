@@ -0,0 +1,197 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a game on its own thread. The loop moves the game forward in fixed steps (see GameClock), applying the keys
+ * from the input queue at the point in time that they happened, and after every step it publishes a new
+ * GameSnapshot.
+ *
+ * The game engine is only ever touched by this thread. Other threads only see the game through the latest snapshot,
+ * which is handed over through a single volatile field, so drawing never waits for the game, and the game never waits
+ * for drawing.
+ *
+ * If the game is being recorded, the recording is finished on this thread when the game ends or the loop is stopped.
+ */
+public class GameLoop implements Runnable {
+
+    /**
+     * Told when something happens in the game. Called on the game loop thread.
+     */
+    public interface Listener {
+        void gameOver(GameLoop gameLoop);
+    }
+
+    //The game, and the clock that moves it forward.
+    private GameEngine gameEngine;
+    private GameClock gameClock = new GameClock(GameEngine.STEP_TIME);
+
+    //Keys waiting to be applied. This thread is the only one that takes them off of the queue.
+    private InputQueue inputQueue;
+    //Where to record how long steps and inputs take.
+    private Instrumentation instrumentation;
+    //Told when the game is over. Can be null.
+    private Listener listener;
+    //Plays the game instead of the keyboard, or null if nobody does.
+    private volatile AutoPlayer autoPlayer = null;
+
+    //The latest snapshot of the game.
+    private volatile GameSnapshot snapshot;
+
+    //The thread that runs the loop, whether or not it should keep running, and whether or not the game is paused.
+    private Thread thread;
+    private volatile boolean running = false;
+    private volatile boolean paused = false;
+
+    //How long to wait between checks while paused, in nanoseconds.
+    final private static long PAUSED_WAIT_TIME = 10000000L;
+
+    /**
+     * Constructor. Publishes the first snapshot of the game right away.
+     * @param gameEngine The game. From now on, it must only be used by the game loop.
+     * @param inputQueue Keys to apply to the game.
+     * @param instrumentation Where to record how long steps and inputs take.
+     * @param listener Told when the game is over. Can be null.
+     */
+    public GameLoop(GameEngine gameEngine, InputQueue inputQueue, Instrumentation instrumentation,
+                    Listener listener) {
+        this.gameEngine = gameEngine;
+        this.inputQueue = inputQueue;
+        this.instrumentation = instrumentation;
+        this.listener = listener;
+        snapshot = new GameSnapshot(gameEngine, null);
+    }
+
+    /**
+     * Starts the loop.
+     */
+    public void start() {
+        running = true;
+        thread = new Thread(this, "Game logic");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the loop, and waits for it to finish.
+     */
+    public void stop() {
+        running = false;
+        if (thread != null && thread != Thread.currentThread()) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        boolean wasPaused = false;
+        while (running == true) {
+            if (paused == true) {
+                wasPaused = true;
+                LockSupport.parkNanos(PAUSED_WAIT_TIME);
+                continue;
+            }
+            if (wasPaused == true) {
+                //The time spent paused does not count, and keys may have been released without the game knowing.
+                gameClock.reset();
+                inputQueue.clear();
+                gameEngine.releaseAll();
+                wasPaused = false;
+            }
+
+            long currentTime = System.nanoTime();
+            int steps = gameClock.advance(currentTime);
+            //The time at which the last of these steps ends.
+            long lastStepEnd = currentTime - gameClock.getLeftOverTime();
+            for (int i = 0; i < steps && gameEngine.isGameOver() == false; i ++) {
+                long tickStart = System.nanoTime();
+                applyInputs(lastStepEnd - (steps - 1 - i)*GameEngine.STEP_TIME);
+                AutoPlayer player = autoPlayer;
+                if (player != null) {
+                    player.update(gameEngine);
+                }
+                gameEngine.step();
+                instrumentation.recordTickTime(System.nanoTime() - tickStart);
+            }
+            if (steps > 0) {
+                snapshot = new GameSnapshot(gameEngine, snapshot);
+            }
+
+            if (gameEngine.isGameOver() == true) {
+                running = false;
+                finishRecording();
+                if (listener != null) {
+                    listener.gameOver(this);
+                }
+                return;
+            }
+
+            //Wait until the next step is due.
+            LockSupport.parkNanos(GameEngine.STEP_TIME - gameClock.getLeftOverTime());
+        }
+        finishRecording();
+    }
+
+    /**
+     * Finishes the recording of the game, if it is being recorded. Done on this thread, since the recorder is only
+     * used by the game.
+     */
+    private void finishRecording() {
+        ReplayRecorder recorder = gameEngine.getRecorder();
+        if (recorder != null) {
+            recorder.finish(gameEngine);
+        }
+    }
+
+    /**
+     * Applies the keys that were pressed or released before the end of a step, at the point in the step that they
+     * happened.
+     * @param stepEnd When the step ends, from System.nanoTime().
+     */
+    private void applyInputs(long stepEnd) {
+        while (inputQueue.isEmpty() == false && inputQueue.peekTime() <= stepEnd) {
+            long eventTime = inputQueue.peekTime();
+            long gameTime = gameEngine.getTime() + GameEngine.STEP_TIME - (stepEnd - eventTime);
+            if (inputQueue.peekPressed() == true) {
+                gameEngine.press(inputQueue.peekInput(), gameTime);
+                instrumentation.recordInputLatency(System.nanoTime() - eventTime);
+            }
+            else {
+                gameEngine.release(inputQueue.peekInput(), gameTime);
+            }
+            inputQueue.remove();
+        }
+    }
+
+    /*  Getters and Setters */
+
+    /**
+     * Gets the latest snapshot of the game. Can be called from any thread.
+     * @return The snapshot.
+     */
+    public GameSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Sets who plays the game instead of the keyboard. Can be called from any thread.
+     * @param autoPlayer The player, or null to let the keyboard play.
+     */
+    public void setAutoPlayer(AutoPlayer autoPlayer) {
+        this.autoPlayer = autoPlayer;
+    }
+
+    /**
+     * Pauses or resumes the game. Can be called from any thread.
+     * @param paused True to pause, false to resume.
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
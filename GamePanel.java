@@ -6,24 +6,53 @@ import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
+import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
+import java.awt.Window;
 
 /**
  * Class that is the game window. It contains the game logic and draw methods.
  */
 public class GamePanel extends JPanel implements ActionListener, MouseMotionListener, MouseListener, KeyListener{
 
-    //Enable/Disable outputs for debugging.
-    final private boolean debug = false;
+    //Measures how long painting, game steps and inputs take.
+    final private Instrumentation instrumentation = new Instrumentation();
+    //Whether or not the measurements are shown on the screen. Toggled with F3, or on from the start when run with
+    //-Dtetris.hud=true.
+    private boolean showHud = Boolean.getBoolean("tetris.hud");
+    //The key that shows or hides the measurements.
+    final private static int HUD_KEY = KeyEvent.VK_F3;
+
+    //Whether or not the computer plays the game. Toggled with A, or on from the start when run with
+    //-Dtetris.autoplay=true.
+    private boolean autoPlay = Boolean.getBoolean("tetris.autoplay");
+    //The key that turns the computer player on or off while the game is being played.
+    final private static int AUTOPLAY_KEY = KeyEvent.VK_A;
+    //The most moves the computer player makes in each step of the game (0 for all at once). Can be changed with
+    //-Dtetris.autoplayMoves=...
+    final private static int AUTOPLAY_MOVES_PER_STEP = Integer.getInteger("tetris.autoplayMoves", 1);
+    //How many milliseconds the computer player spends searching ahead for each game piece (0 to only look at the next
+    //game piece). Can be changed with -Dtetris.autoplaySearch=...
+    final private static int AUTOPLAY_SEARCH_TIME = Integer.getInteger("tetris.autoplaySearch", 0);
+    //The weights of the computer player, as read by AutoPlayer.readWeights: either the weights separated by commas, or
+    //a checkpoint of the WeightTuner. Can be given with -Dtetris.autoplayWeights=..., or left out for the defaults.
+    final private static String AUTOPLAY_WEIGHTS = System.getProperty("tetris.autoplayWeights");
 
     //Text that displays in the 'Controls Screen.'
     final private static String CONTROLS_TEXT = "The controls of this game are simple. To play the game use the" +
             " keyboard, only the arrow keys need to be used. The left and right arrow keys are used to move the Tetris " +
             "game piece. The up key is to rotate the game piece 90 degrees counter-clockwise, while the down key is to " +
-            " drop the game piece to the ground.";
+            "move the game piece down faster. Press the space bar to drop the game piece straight to the ground. The" +
+            " see-through blocks show where the game piece will land. Press A to let the computer play, and A again to" +
+            " take over.";
 
     //Text that displays the Instructions.
     final private static String INSTRUCTIONS_TEXT = "Tetris!!! This game is my version of the popular puzzle game. The" +
@@ -39,20 +68,20 @@ public class GamePanel extends JPanel implements ActionListener, MouseMotionList
     //The dropTimer for drawing.
     private Timer animationTimer;
 
+    //The loop that updates and draws the panel in active rendering mode, or null if Swing timers are used instead.
+    private ActiveRenderLoop activeRenderLoop = null;
+
+    //Lock that must be held while changing or drawing anything in the panel, since in active rendering mode the
+    //panel is updated and drawn from a different thread than the one that receives events.
+    final private Object gameLock = new Object();
+
     //Target is a good 60 FPS, 4K resolution :)
     final static private double TARGET_FPS = 60;
     //Amount of time, in millis, to delay to get target FPS
     private double delayTime;
 
-    //Time at which the program started.
-    private long programStartTime;
-    private long programCurrentTime;
     //The number of frames drawn since program started.
     private long framesDrawn = 0;
-    //Time elapsed since program started.
-    private long elapsedTime;
-    //The actual calculated FPS.
-    private int actualFPS;
 
     //The last mouseEvent that was received.
     private MouseEvent previousMouseEvent = null;
@@ -94,28 +123,52 @@ public class GamePanel extends JPanel implements ActionListener, MouseMotionList
     private Button but1,but2,but3;
 
     //The textboxes.
-    private TextBox textBox1, textBox2, textBox3;
+    private TextBox textBox1, textBox3;
+    //Shows the score during the game.
+    private ScoreBox scoreBox;
 
     //Manager for the textboxes.
     private TextComponentManager textBoxManager;
 
-    //The game pieces.
-    private GamePiece currentGamePiece;
-    private GamePiece nextGamePiece;
+    //The parts of the panel that have changed and need to be repainted.
+    private DirtyRegion dirtyRegion;
+
+    //The side panels and the backgrounds of the grids, which do not change during a game.
+    private BackgroundLayer gameBackground;
+
+    //Runs the game engine, which contains the rules of the game, on its own thread. Null when there is no game.
+    private GameLoop gameLoop = null;
+    //The snapshot of the game that is drawn. Everything about the game that is drawn comes from here.
+    private GameSnapshot snapshot = null;
 
     //The menu overlays for game over and pauseGame screens.
     private Overlay menuOverlay = null;
 
-    //Timer. Used to drop the game block by one cell after a set amount of time.
-    private Timer dropTimer;
-    //How long to wait before dropping game piece again by one cell.
-    private int dropTime;
+    //How long to wait before dropping game piece again by one cell, in milliseconds.
     final private static int INITIAL_DROP_TIME = 500;
 
+    //Key presses and releases waiting to be applied by the game loop. There is a new one for each game.
+    private InputQueue inputQueue = new InputQueue();
+    //How held keys repeat, in milliseconds (see GameEngine.setAutoShift). Can be changed with -Dtetris.das=...,
+    //-Dtetris.arr=... and -Dtetris.softDrop=...
+    final private static int AUTO_SHIFT_DELAY = Integer.getInteger("tetris.das", 170);
+    final private static int AUTO_REPEAT_RATE = Integer.getInteger("tetris.arr", 50);
+    final private static int SOFT_DROP_RATE = Integer.getInteger("tetris.softDrop", 50);
+    //How the game pieces are chosen: "uniform", "bag" or "history" (see RandomPieceGenerator.create), and whether each
+    //shape always has the same colour and starting orientation. Can be changed with -Dtetris.randomizer=...,
+    //-Dtetris.seed=... (to play the same game pieces every time) and -Dtetris.fixedPieces=true.
+    final private static String RANDOMIZER = System.getProperty("tetris.randomizer", "uniform");
+    final private static Long SEED = Long.getLong("tetris.seed");
+    final private static boolean FIXED_PIECES = Boolean.getBoolean("tetris.fixedPieces");
+    //The folder to record every game into, or null to not record games. Can be set with -Dtetris.replays=...
+    final private static String REPLAY_FOLDER = System.getProperty("tetris.replays");
+    //The most that a key event is dated back by, in milliseconds, in case the system clock jumped.
+    final private static long MAX_KEY_DELAY = 100;
+
     //Whether or not to pauseGame the game.
     private boolean pauseGame = false;
 
-    //The score.
+    //The score that is currently displayed.
     private int score = 0;
     
     /**
@@ -123,9 +176,6 @@ public class GamePanel extends JPanel implements ActionListener, MouseMotionList
      */
     public GamePanel() {
         super();
-        
-        //Time that the program started at.
-        programStartTime = System.currentTimeMillis();
 
         //Set the size of the window.
         size = new Dimension(1100,800);
@@ -143,6 +193,13 @@ public class GamePanel extends JPanel implements ActionListener, MouseMotionList
         //Set up the game.
         buttonManager = new ButtonManager();
         textBoxManager = new TextComponentManager();
+        dirtyRegion = new DirtyRegion();
+        buttonManager.setDirtyRegion(dirtyRegion);
+        gameBackground = new BackgroundLayer(new BackgroundLayer.Painter() {
+            public void paint(Graphics g) {
+                drawGameBackground(g);
+            }
+        });
 
         //Initially go to the main menu.
         goToMainMenu();
@@ -152,6 +209,7 @@ public class GamePanel extends JPanel implements ActionListener, MouseMotionList
      * Method that must be called whenever we are going to the main menu.
      */
     public void goToMainMenu() {
+        stopGameLoop();
     	//Set the state.
         updateState(State.MAIN_MENU);
 
@@ -247,7 +305,9 @@ public class GamePanel extends JPanel implements ActionListener, MouseMotionList
      * Resets all the game variables.
      */
     public void goToGame() {
-    	
+        //Stop the last game, if there was one.
+        stopGameLoop();
+
     	//Update the game state.
         updateState(State.GAME_ON);
     	
@@ -264,29 +324,72 @@ public class GamePanel extends JPanel implements ActionListener, MouseMotionList
     	gameGrid.setDrawTerminalLine(true);
     	//Grid to display panel.
     	sideGrid = new Grid(50,200,200,200);
+    	//The grids are new, so the background needs to be drawn again.
+    	gameBackground.invalidate();
 
     	//Text descriptions and displays.
         textBox1 = new TextBox(50,100,200,100, "Next Game Piece");
         textBox1.setTextAlignment(TextBox.TEXT_ALIGN_CENTER);
         textBox1.setTopMargins(50);
-        textBox2 = new TextBox((int)size.getWidth()-BUTTON_WIDTH, 200, BUTTON_WIDTH, 100, "Score: 0");
-        textBox2.setTextAlignment(TextBox.TEXT_ALIGN_LEFT);
-        textBox2.setTopMargins(50);
+        scoreBox = new ScoreBox((int)size.getWidth()-BUTTON_WIDTH, 200, BUTTON_WIDTH, 100, "Score: ");
+        scoreBox.setTopMargins(50);
         textBoxManager.addComponent(textBox1);
-        textBoxManager.addComponent(textBox2);
+        textBoxManager.addComponent(scoreBox);
 
-        //Create the game piece that is next in line.
-        nextGamePiece = new GamePiece(sideGrid);
-        nextGamePiece.generateNewPiece();
-
-        //Create the first game piece.
-        currentGamePiece = new GamePiece(gameGrid);
-        currentGamePiece.generateNewPiece();
+        //Start the game engine on grids of the same size. It creates the first game pieces. The panel`s grids are only
+        //used to draw the game; the engine`s grids belong to the game loop thread.
+        RandomPieceGenerator pieceGenerator = RandomPieceGenerator.create(RANDOMIZER,
+                SEED != null ? SEED : System.nanoTime());
+        pieceGenerator.setFixedColours(FIXED_PIECES);
+        pieceGenerator.setFixedOrientations(FIXED_PIECES);
+        GameEngine gameEngine = new GameEngine(gameGrid.getColumns(), gameGrid.getRows(), pieceGenerator);
 
         //Set initial variables.
-        dropTime = INITIAL_DROP_TIME;
-        setupDropTimer(dropTime);
+        gameEngine.setDropTime(INITIAL_DROP_TIME);
+        gameEngine.setAutoShift(AUTO_SHIFT_DELAY, AUTO_REPEAT_RATE, SOFT_DROP_RATE);
         score = 0;
+        inputQueue = new InputQueue();
+        recordGame(gameEngine);
+
+        //Run the game on its own thread. When it ends, show the game over screen on this thread.
+        gameLoop = new GameLoop(gameEngine, inputQueue, instrumentation, new GameLoop.Listener() {
+            public void gameOver(final GameLoop endedGameLoop) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        synchronized (gameLock) {
+                            //Make sure that it is still the same game.
+                            if (endedGameLoop == gameLoop && state == State.GAME_ON) {
+                                updateFrame();
+                                GamePanel.this.gameOver();
+                                repaintChanges();
+                            }
+                        }
+                    }
+                });
+            }
+        });
+        updateAutoPlayer();
+        snapshot = null;
+        updateFrame();
+        gameLoop.start();
+    }
+
+    /**
+     * Starts recording a game into the replay folder, if there is one. The recording is named after the time that the
+     * game started.
+     * @param gameEngine The game, before its first step.
+     */
+    private void recordGame(GameEngine gameEngine) {
+        if (REPLAY_FOLDER == null) {
+            return;
+        }
+        Path file = Paths.get(REPLAY_FOLDER, "tetris-" + System.currentTimeMillis() + ".replay");
+        try {
+            Files.createDirectories(file.getParent());
+            gameEngine.setRecorder(ReplayRecorder.create(file));
+        } catch (IOException exception) {
+            System.err.println("Could not record the game to " + file + ": " + exception.getMessage());
+        }
     }
 
     /**
@@ -298,6 +401,8 @@ public class GamePanel extends JPanel implements ActionListener, MouseMotionList
         state = newState;
         buttonManager.removeAllComponents();
         textBoxManager.removeAllComponents();
+        //Everything on the screen changes.
+        dirtyRegion.addAll();
     }
 
 
@@ -309,11 +414,9 @@ public class GamePanel extends JPanel implements ActionListener, MouseMotionList
         updateState(State.GAME_OVER);
     	//Pause the game.
         pauseGame();
-        //Stop the drop timer.
-        dropTimer.stop();
-        dropTimer = null;
         //Set up menu overlay.
     	menuOverlay = new Overlay(100,100,(int)size.getWidth()-200,(int)size.getHeight()-200,"Game Over!",size);
+    	menuOverlay.setDirtyRegion(dirtyRegion);
 
     	//Create buttons.
         but2 = new Button(150,500,BUTTON_WIDTH,BUTTON_HEIGHT,"Play Again",PRIMARY_BUTTON_COLOUR,SECONDARY_BUTTON_COLOUR);
@@ -332,9 +435,8 @@ public class GamePanel extends JPanel implements ActionListener, MouseMotionList
      * Pauses the game. Make all the buttons not inside of the menu overlay unclickable.
      */
     private void pauseGame() {
-        //Stop the dropTimer.
-        if (dropTimer != null) {
-            dropTimer.stop();
+        if (gameLoop != null) {
+            gameLoop.setPaused(true);
         }
         pauseGame = true;
         buttonManager.setClickable(false);
@@ -344,9 +446,8 @@ public class GamePanel extends JPanel implements ActionListener, MouseMotionList
      * Resumes the game. Makes the buttons clickable again.
      */
     private void resumeGame() {
-        //Resume the timer.
-        if (dropTimer != null) {
-            dropTimer.start();
+        if (gameLoop != null) {
+            gameLoop.setPaused(false);
         }
         pauseGame = false;
         buttonManager.setClickable(true);
@@ -357,6 +458,7 @@ public class GamePanel extends JPanel implements ActionListener, MouseMotionList
      */
     private void removeOverlay() {
         menuOverlay = null;
+        dirtyRegion.addAll();
     }
 
     /**
@@ -365,6 +467,9 @@ public class GamePanel extends JPanel implements ActionListener, MouseMotionList
     private void createPauseMenu() {
         //Set up menu overlay.
         menuOverlay = new Overlay(100,100,(int)size.getWidth()-200,(int)size.getHeight()-200,"Game Paused",size);
+        menuOverlay.setDirtyRegion(dirtyRegion);
+        //The overlay covers the whole screen.
+        dirtyRegion.addAll();
 
         //Buttons.
         but2 = new Button(150,500,BUTTON_WIDTH,BUTTON_HEIGHT,"Resume",PRIMARY_BUTTON_COLOUR,SECONDARY_BUTTON_COLOUR);
@@ -384,17 +489,31 @@ public class GamePanel extends JPanel implements ActionListener, MouseMotionList
      */
     @Override
     public void paint(Graphics g) {
+        synchronized (gameLock) {
+            //Check if the animationTimer has been set up. It is not needed in active rendering mode.
+            if (animationTimer == null && activeRenderLoop == null) {
+                //If not, set it up, and start it if the game is on.
+                setupAnimationTimer();
+                updateAnimationTimer();
+            }
 
-        //Check if the dropTimer has been started.
-        if (animationTimer == null) {
-            //If not, set it up and start it.
-            setupAnimationTimer();
+            render(g);
         }
+    }
+
+    /**
+     * Draws everything in the panel. Must be called while holding the lock.
+     * @param g The graphics object.
+     */
+    public void render(Graphics g) {
+        long paintStart = System.nanoTime();
 
-        //Clear the panel.
+        //Clear the panel. The game screens are covered completely by their background layer, so they don`t need it.
         size = getSize();
-        g.setColor(Color.white);
-        g.fillRect(0, 0, size.width, size.height);
+        if (state != State.GAME_ON && state != State.GAME_OVER) {
+            g.setColor(Color.white);
+            g.fillRect(0, 0, size.width, size.height);
+        }
 
         //It is currently in the main menu.
         if (state == State.MAIN_MENU) {
@@ -435,34 +554,59 @@ public class GamePanel extends JPanel implements ActionListener, MouseMotionList
             menuOverlay.draw(g);
         }
 
-        //Display debug information.
-        if (debug == true) {
-            g.setColor(Color.red);
-            programCurrentTime = System.currentTimeMillis();
-            elapsedTime = (programCurrentTime - programStartTime);
-            actualFPS = (int) ((framesDrawn * 1000) / elapsedTime);
-            g.drawString("FPS: " + actualFPS, 20, 20);
-            g.drawString("Frames: " + framesDrawn, 20, 40);
-            g.drawString("programCurrentTime: " + programCurrentTime, 20, 60);
-            g.drawString("programStartTime: " + programStartTime, 20, 80);
-            g.drawString("elapsedTime: " + elapsedTime, 20, 100);
-            g.drawString("delayTime: " + delayTime, 20, 120);
+        //Display the measurements. The time taken to draw them is not part of the measurement.
+        instrumentation.recordPaintTime(System.nanoTime() - paintStart);
+        if (showHud == true) {
+            if (activeRenderLoop != null) {
+                instrumentation.drawHud(g, 10, 10, "frames: " + framesDrawn,
+                        String.format("frame time: %.2fms, jitter: %.2fms, max: %.2fms",
+                                activeRenderLoop.getAverageFrameTime(), activeRenderLoop.getFrameTimeJitter(),
+                                activeRenderLoop.getMaxFrameTime()));
+            }
+            else {
+                instrumentation.drawHud(g, 10, 10, "frames: " + framesDrawn);
+            }
         }
+        framesDrawn++;
     }
 
     /**
-     * Draws the game grids and the side panels for the game.
+     * Draws the game grids and the side panels for the game, from the latest snapshot of the game.
      * @param g The graphics object.
      */
     private void drawGame(Graphics g) {
+        //Copy the parts that do not change.
+        gameBackground.draw(g, size.width, size.height);
+        if (snapshot == null) {
+            return;
+        }
+
+        //In active rendering mode, the falling game piece is drawn part of the way to the next row, so that it
+        //falls smoothly.
+        int pieceOffsetY = 0;
+        if (activeRenderLoop != null && state == State.GAME_ON && pauseGame == false
+                && snapshot.getDropDistance() > 0) {
+            pieceOffsetY = (int) (snapshot.getGravityProgress(System.nanoTime())*Block.getBlockHeight());
+        }
+
+        //Draw the blocks on the game grids, and show where the current game piece will land.
+        snapshot.draw(g, gameGrid, sideGrid, pieceOffsetY);
+    }
+
+    /**
+     * Draws the parts of the game screen that do not change during a game: the side panels and the backgrounds of
+     * the game grids. Only called when the background layer needs to be drawn again.
+     * @param g The graphics object.
+     */
+    private void drawGameBackground(Graphics g) {
         //Draw the menu panels on the sides. Their widths will be equal to the width of a button.
         g.setColor(SIDEPANEL_COLOUR);
         g.fillRect(0, 0, BUTTON_WIDTH, size.height);
         g.fillRect(size.width-BUTTON_WIDTH, 0, BUTTON_WIDTH, size.height);
 
         //Draw the game grids.
-        gameGrid.draw(g);
-        sideGrid.draw(g);
+        gameGrid.drawBackground(g);
+        sideGrid.drawBackground(g);
     }
 
     /**
@@ -479,117 +623,107 @@ public class GamePanel extends JPanel implements ActionListener, MouseMotionList
         //The first parameter is the dropTimer interval, in milliseconds.
         //The second parameter is the object that will receive events from the dropTimer.
         animationTimer = new Timer((int)delayTime,this);
-        animationTimer.start();
-
     }
 
     /**
-     * Set up the drop timer; the amount of time before each drop.
-     * @param dropTime The amount of time in milliseconds.
+     * Starts or stops the animationTimer depending on the state of the game. It only needs to run while the game is
+     * on and not paused (or while the measurements are shown, since they change every frame). On every other screen,
+     * nothing changes except in response to events, so the panel is only repainted then (see repaintChanges).
      */
-    private void setupDropTimer(int dropTime) {
-        if (dropTimer != null) {
-            dropTimer.stop();
+    private void updateAnimationTimer() {
+        if (animationTimer == null) {
+            return;
+        }
+        boolean animating = (state == State.GAME_ON && pauseGame == false) || showHud == true;
+        if (animating == true && animationTimer.isRunning() == false) {
+            animationTimer.start();
+        }
+        else if (animating == false && animationTimer.isRunning() == true) {
+            animationTimer.stop();
         }
-        dropTimer = new Timer(dropTime,this);
-        dropTimer.start();
     }
 
-    @Override
-    public void actionPerformed(ActionEvent e) {
-
-        //Check if the action we are receiving is from the dropTimer.
-        if (e.getSource() == animationTimer) {
-            //Time to repaint the panel.
-            framesDrawn++;
-            repaint();
-        }
-        else if (e.getSource() == dropTimer) {
-            //Only drop when the game is not paused.
-            if (pauseGame == false) {
-                dropGamePiece();
-            }
+    /**
+     * Repaints the parts of the panel that changed, and starts or stops the animationTimer if the state of the game
+     * changed. Must be called while holding the lock, after anything that could change what is on the screen.
+     */
+    private void repaintChanges() {
+        //In active rendering mode, everything is drawn every frame anyway.
+        if (activeRenderLoop != null) {
+            dirtyRegion.clear();
+            return;
+        }
+        updateAnimationTimer();
+        if (dirtyRegion.isEmpty() == false) {
+            dirtyRegion.repaint(this);
         }
     }
 
     /**
-     * Drop the gamepiece by one cell/row. Also detects when it has hit the bottom.
+     * Switches to active rendering mode: from now on, a separate thread updates the game and draws the panel into
+     * the window (see ActiveRenderLoop), instead of the Swing timer and repaint requests.
+     * @param window The window that contains this panel. It must be showing on the screen.
      */
-    private void dropGamePiece() {
-        if (currentGamePiece != null) {
-            boolean canDropDown = currentGamePiece.moveDown();
-
-            //Land the game piece.
-            if (canDropDown == false) {
-                //Release all of the blocks that were formerly a part of the piece.
-                currentGamePiece.releaseGamePiece();
-                //Use the next game piece.
-                currentGamePiece = nextGamePiece;
-                movePieceToGameGrid(currentGamePiece);
-
-                //Remove all blocks from the side grid panel.
-                sideGrid.removeAllBlocks();
-                //Generate a new piece that will be next in line.
-                nextGamePiece = new GamePiece(sideGrid);
-                nextGamePiece.generateNewPiece();
-                
-                //Check to see if any line was formed. If yes, add to score and delete row.
-                checkLinesFormed();
-
-                //Check to see if any block landed in the terminal line. If yes, the game is over.
-                boolean blockTerminated = gameGrid.blockOnTerminalLine();
-                if (blockTerminated == true) {
-                	gameOver();
-                }
+    public void startActiveRendering(Window window) {
+        synchronized (gameLock) {
+            if (animationTimer != null) {
+                animationTimer.stop();
+                animationTimer = null;
             }
+            activeRenderLoop = new ActiveRenderLoop(window, this);
         }
+        activeRenderLoop.start();
     }
 
-
     /**
-     * Move the current game piece to the game grid.
-     * @param gamePiece The game piece to move.
+     * Picks up the latest snapshot of the game from the game loop, and updates everything that depends on it. Must be
+     * called while holding the lock, before drawing a frame.
      */
-    private void movePieceToGameGrid(GamePiece gamePiece) {
-        //Change the grid from the sideGrid to the gameGrid.
-        gamePiece.changeGrid(gameGrid);
-
-        //Move up so that it initially starts outside and above of the game grid.
-        for (int i = 0; i < gamePiece.getSIZE(); i ++) {
-            gamePiece.moveUp();
+    public void updateFrame() {
+        if (gameLoop == null) {
+            return;
         }
-
-        //Center the game piece, as much as possible.
-        int gridWidth = gamePiece.getGrid().getColumns();
-        int offsetX = (gridWidth-(4))/2;
-        for (int i = 0; i < offsetX; i ++) {
-            gamePiece.moveRight();
+        GameSnapshot latest = gameLoop.getSnapshot();
+        if (latest == snapshot) {
+            return;
         }
+        //Only repaint what changed since the last snapshot that was drawn.
+        latest.markChanges(dirtyRegion, gameGrid, sideGrid, snapshot);
+        if (latest.getScore() != score) {
+            score = latest.getScore();
+            scoreBox.setValue(score);
+            dirtyRegion.add(scoreBox.getX(), scoreBox.getY(), scoreBox.getW(), scoreBox.getH());
+        }
+        snapshot = latest;
     }
 
-    /**
-     * Checks to see if any horizontal line was formed on the grid.
-     */
-    private void checkLinesFormed() {
-    	int rows = gameGrid.getRows();
-    	//Start at 1, because 0 is the terminal line.
-    	for (int i = 1; i < rows; i ++) {
-    		boolean lineFormed = gameGrid.horizontalLineFormed(i);
-    		if (lineFormed == true) {
-    		    //Delete row and drop down all of the blocks that are above it.
-    			gameGrid.deleteRow(i);
-    			gameGrid.dropBlocks(i);
-    			increaseScore();
-    		}
-    	}
+    @Override
+    public void actionPerformed(ActionEvent e) {
+
+        //Check if the action we are receiving is from the animationTimer.
+        if (e.getSource() == animationTimer) {
+            synchronized (gameLock) {
+                //Pick up the latest snapshot of the game.
+                updateFrame();
+
+                //The measurements change every frame.
+                if (showHud == true) {
+                    dirtyRegion.addAll();
+                }
+                //Time to repaint the parts of the panel that changed.
+                repaintChanges();
+            }
+        }
     }
-    
+
     /**
-     * Add to the score.
+     * Stops the game loop, if there is one.
      */
-    private void increaseScore() {
-    	score ++;
-    	textBox2.setText("Score: " + score);
+    private void stopGameLoop() {
+        if (gameLoop != null) {
+            gameLoop.stop();
+            gameLoop = null;
+        }
     }
 
     /**
@@ -700,53 +834,156 @@ public class GamePanel extends JPanel implements ActionListener, MouseMotionList
 
     @Override
     public void mouseReleased(MouseEvent e) {
-        //The mouse has just been released; check to see what button was clicked.
-        checkButtonsClicked(e);
-        previousMouseEvent = e;
+        synchronized (gameLock) {
+            //The mouse has just been released; check to see what button was clicked.
+            checkButtonsClicked(e);
+            previousMouseEvent = e;
+            repaintChanges();
+        }
     }
 
     @Override
     public void mouseMoved(MouseEvent e) {
-    	//Update the state of the buttons depending on if the mouse is hovering over them.
-    	buttonManager.updateButtonStates(e);
+        synchronized (gameLock) {
+            //Update the state of the buttons depending on if the mouse is hovering over them.
+            buttonManager.updateButtonStates(e);
 
-    	//Send to the overlay, if it exists.
-        if (menuOverlay != null) {
-        menuOverlay.updateButtonStates(e);
-        }
+            //Send to the overlay, if it exists.
+            if (menuOverlay != null) {
+                menuOverlay.updateButtonStates(e);
+            }
 
-        //Store the mouse event.
-        previousMouseEvent = e;
+            //Store the mouse event.
+            previousMouseEvent = e;
+            repaintChanges();
+        }
     }
 
     @Override
     public void mouseDragged(MouseEvent e) {
-        //Interesting: when user holds down mouse while moving it, it is a mouseDragged event.
-        //Update the state of the buttons depending on if the mouse is hovering over them.
-        buttonManager.updateButtonStates(e);
-        previousMouseEvent = e;
+        synchronized (gameLock) {
+            //Interesting: when user holds down mouse while moving it, it is a mouseDragged event.
+            //Update the state of the buttons depending on if the mouse is hovering over them.
+            buttonManager.updateButtonStates(e);
+            previousMouseEvent = e;
+            repaintChanges();
+        }
     }
     
     @Override
 	public void keyPressed(KeyEvent e) {
-        if (state == State.GAME_ON) {
-            //Only move when the game is not paused.
-            if (pauseGame == false) {
-                if (e.getKeyCode() == KeyEvent.VK_LEFT) {
-                    currentGamePiece.moveLeft();
-                } else if (e.getKeyCode() == KeyEvent.VK_RIGHT) {
-                    currentGamePiece.moveRight();
-                } else if (e.getKeyCode() == KeyEvent.VK_DOWN) {
-                    dropGamePiece();
-                } else if (e.getKeyCode() == KeyEvent.VK_UP) {
-                    currentGamePiece.rotate();
-                }
-                //Make sure nothing is out of bounds.
-                currentGamePiece.stayWithinBounds();
+        synchronized (gameLock) {
+            handleKeyPressed(e);
+            repaintChanges();
+        }
+    }
+
+    /**
+     * Acts on a key that was pressed: shows or hides the measurements, or queues the key for the game clock. Must be
+     * called while holding the lock.
+     * @param e The key event.
+     */
+    private void handleKeyPressed(KeyEvent e) {
+        //Show or hide the measurements. Start measuring again when they are shown.
+        if (e.getKeyCode() == HUD_KEY) {
+            showHud = !showHud;
+            if (showHud == true) {
+                instrumentation.reset();
+            }
+            dirtyRegion.addAll();
+        }
+        else if (e.getKeyCode() == AUTOPLAY_KEY) {
+            //Like the keys that move the game piece, this only works while the game is being played.
+            if (state == State.GAME_ON && pauseGame == false) {
+                autoPlay = !autoPlay;
+                updateAutoPlayer();
             }
         }
+        else {
+            queueKeyEvent(e, true);
+        }
 	}
+
+    /**
+     * Gives the game to the computer player, or takes it back, depending on whether autoplay is on.
+     */
+    private void updateAutoPlayer() {
+        if (gameLoop == null) {
+            return;
+        }
+        if (autoPlay == true) {
+            AutoPlayer autoPlayer = createAutoPlayer();
+            autoPlayer.setMovesPerStep(AUTOPLAY_MOVES_PER_STEP);
+            autoPlayer.setSearchTime(AUTOPLAY_SEARCH_TIME*1000000L);
+            gameLoop.setAutoPlayer(autoPlayer);
+        }
+        else {
+            gameLoop.setAutoPlayer(null);
+        }
+    }
+
+    /**
+     * Creates the computer player, with the weights from -Dtetris.autoplayWeights if they were given.
+     * @return The computer player.
+     */
+    private AutoPlayer createAutoPlayer() {
+        if (AUTOPLAY_WEIGHTS != null) {
+            try {
+                return new AutoPlayer(AutoPlayer.readWeights(AUTOPLAY_WEIGHTS), ForkJoinPool.commonPool());
+            } catch (IOException | IllegalArgumentException exception) {
+                System.err.println("Could not read the autoplay weights " + AUTOPLAY_WEIGHTS + ", so the defaults are "
+                        + "used: " + exception.getMessage());
+            }
+        }
+        return new AutoPlayer();
+    }
+
+    /**
+     * Adds a key event to the input queue, to be applied by the game clock. Only keys that control the game piece
+     * are queued, and only while the game is being played.
+     * @param e The key event.
+     * @param pressed True if the key was pressed, false if it was released.
+     */
+    private void queueKeyEvent(KeyEvent e, boolean pressed) {
+        if (state != State.GAME_ON || pauseGame == true) {
+            return;
+        }
+        GameEngine.Input input = null;
+        if (e.getKeyCode() == KeyEvent.VK_LEFT) {
+            input = GameEngine.Input.LEFT;
+        } else if (e.getKeyCode() == KeyEvent.VK_RIGHT) {
+            input = GameEngine.Input.RIGHT;
+        } else if (e.getKeyCode() == KeyEvent.VK_DOWN) {
+            input = GameEngine.Input.DOWN;
+        } else if (e.getKeyCode() == KeyEvent.VK_UP) {
+            input = GameEngine.Input.ROTATE;
+        } else if (e.getKeyCode() == KeyEvent.VK_SPACE) {
+            input = GameEngine.Input.HARD_DROP;
+        }
+        if (input != null) {
+            //Date the event back to when the system says the key was pressed. That time is only to the millisecond,
+            //and from a different clock, so only use it to measure how long the event took to get here.
+            long delay = Math.max(0, Math.min(MAX_KEY_DELAY, System.currentTimeMillis() - e.getWhen()));
+            inputQueue.offer(input, pressed, System.nanoTime() - delay*1000000);
+        }
+    }
     
+    /**
+     * Gets the lock that must be held while changing or drawing anything in the panel.
+     * @return The lock.
+     */
+    public Object getLock() {
+        return gameLock;
+    }
+
+    /**
+     * Gets the measurements of how long painting, game steps and inputs take.
+     * @return The measurements.
+     */
+    public Instrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
     /*	Unused inherited methods. Why are we forced to implement them if we are not gonna use them?? Doesn`t make sense!	*/
     @Override
     public void mouseClicked(MouseEvent e) {
@@ -770,7 +1007,9 @@ public class GamePanel extends JPanel implements ActionListener, MouseMotionList
 
 	@Override
 	public void keyReleased(KeyEvent e) {
-		
+        synchronized (gameLock) {
+            queueKeyEvent(e, false);
+        }
 	}
 
 	@Override
@@ -1,6 +1,5 @@
 import java.awt.*;
 import java.util.ArrayList;
-import java.util.Random;
 
 /**
  * This class represents a game piece. A game piece is an object that the user can control.
@@ -10,6 +9,8 @@ import java.util.Random;
  *
  * Each game piece will be contained within a 4 by 4 grid.
  * The pivot around which the game piece rotates is the center of the 4 by 4 grid.
+ * The shapes of every game piece in every orientation are calculated once, so moving or rotating a game piece only
+ * changes its position or orientation, and then checks the cells that it would cover.
  *
  * OMG, there were so many bugs that I had to kill for this class!
  */
@@ -25,11 +26,123 @@ public class GamePiece {
     private ArrayList<Block> gridBlocks = new ArrayList<>(0);
 
     //All of the blocks that are a part of the game piece. Will contain some of the blocks in 'gridBlocks'.
+    //Their positions are always set from the shape tables below, using the type, orientation and position.
     private ArrayList<Block> gamePieceBlocks = new ArrayList<>(0);
 
+    //The type of shape (see generateNewPiece), and which of its 4 orientations it is in.
+    private int type, orientation;
+
+    //The position of the game piece: the left most column and the top most row that its blocks are in.
+    private int pieceX, pieceY;
+
+    //The cells that were last reported to the grid as changed: the game piece and its ghost.
+    private int dirtyX, dirtyY, dirtyW, dirtyH;
+    private boolean hasDirtyCells = false;
+
     //The maximum number of blocks that can be placed end to end horizontally or vertically.
     final private static int SIZE = 4;
 
+    //The number of different shapes, and the number of orientations of each shape.
+    final private static int TYPES = 7;
+    final private static int ORIENTATIONS = 4;
+
+    //The type of each shape, in the same order as BASE_SHAPES.
+    final public static int TYPE_I = 0;
+    final public static int TYPE_J = 1;
+    final public static int TYPE_L = 2;
+    final public static int TYPE_O = 3;
+    final public static int TYPE_S = 4;
+    final public static int TYPE_Z = 5;
+    final public static int TYPE_T = 6;
+
+    /*
+    The shapes of all 7 types of game pieces, in their first orientation. Each shape is written as the x and y
+    positions of its 4 blocks. They are all moved so that the left most block has x = 0 and the top most block
+    has y = 0. The diagrams in generateNewPiece show what they look like.
+     */
+    final private static int[][][] BASE_SHAPES = {
+            {{0,0},{0,1},{0,2},{0,3}},  //I Piece.
+            {{1,0},{1,1},{1,2},{0,2}},  //J Piece.
+            {{0,0},{0,1},{0,2},{1,2}},  //L Piece.
+            {{0,0},{1,0},{0,1},{1,1}},  //O Piece.
+            {{2,0},{1,0},{1,1},{0,1}},  //S Piece.
+            {{0,0},{1,0},{1,1},{2,1}},  //Z Piece.
+            {{0,0},{1,0},{2,0},{1,1}}   //T Piece.
+    };
+
+    //Where every game piece starts off on the side grid, before it is rotated.
+    final private static int SPAWN_X = 1;
+    final private static int SPAWN_Y = 0;
+
+    /*
+    The shapes of all 7 types of game pieces in all 4 orientations, calculated once from BASE_SHAPES.
+    SHAPE_X[type][orientation][i] is the x position of block i, relative to the position of the game piece.
+     */
+    final private static int[][][] SHAPE_X = new int[TYPES][ORIENTATIONS][SIZE];
+    final private static int[][][] SHAPE_Y = new int[TYPES][ORIENTATIONS][SIZE];
+    //The width and height of each shape in each orientation.
+    final private static int[][] SHAPE_WIDTH = new int[TYPES][ORIENTATIONS];
+    final private static int[][] SHAPE_HEIGHT = new int[TYPES][ORIENTATIONS];
+    //Where each shape is on the side grid once generateNewPiece has rotated it into each orientation.
+    final private static int[][] SPAWN_COLUMN = new int[TYPES][ORIENTATIONS];
+    final private static int[][] SPAWN_ROW = new int[TYPES][ORIENTATIONS];
+
+    static {
+        for (int type = 0; type < TYPES; type ++) {
+            for (int i = 0; i < SIZE; i ++) {
+                SHAPE_X[type][0][i] = BASE_SHAPES[type][i][0];
+                SHAPE_Y[type][0][i] = BASE_SHAPES[type][i][1];
+            }
+            for (int orientation = 1; orientation < ORIENTATIONS; orientation ++) {
+                /*
+                Rotate the previous orientation 90 degrees clockwise, within the 4 by 4 mini grid.
+                The diagram below shows why:
+                123
+                456
+                789
+                rotated becomes:
+                369
+                258
+                147
+
+                The formula is:
+                newX = oldY
+                newY = SIZE - oldX - 1
+                Afterwards, move the blocks so that the top most block has y = 0 again.
+                 */
+                int[] oldX = SHAPE_X[type][orientation-1];
+                int[] oldY = SHAPE_Y[type][orientation-1];
+                int top = SIZE;
+                for (int i = 0; i < SIZE; i ++) {
+                    SHAPE_X[type][orientation][i] = oldY[i];
+                    SHAPE_Y[type][orientation][i] = SIZE - oldX[i] - 1;
+                    top = Math.min(top, SHAPE_Y[type][orientation][i]);
+                }
+                for (int i = 0; i < SIZE; i ++) {
+                    SHAPE_Y[type][orientation][i] -= top;
+                }
+            }
+            for (int orientation = 0; orientation < ORIENTATIONS; orientation ++) {
+                for (int i = 0; i < SIZE; i ++) {
+                    SHAPE_WIDTH[type][orientation] = Math.max(SHAPE_WIDTH[type][orientation], SHAPE_X[type][orientation][i] + 1);
+                    SHAPE_HEIGHT[type][orientation] = Math.max(SHAPE_HEIGHT[type][orientation], SHAPE_Y[type][orientation][i] + 1);
+                }
+            }
+
+            //Rotate from SPAWN_X and SPAWN_Y the same way as rotate does, on the side grid, which is as big as a game
+            //piece and empty, so every rotation works.
+            int x = SPAWN_X, y = SPAWN_Y;
+            for (int orientation = 0; orientation < ORIENTATIONS; orientation ++) {
+                if (orientation > 0) {
+                    y = Math.min(SIZE - SHAPE_HEIGHT[type][orientation], y + SIZE - SHAPE_WIDTH[type][orientation-1]);
+                    x = Math.max(0, Math.min(SIZE - SHAPE_WIDTH[type][orientation], x));
+                }
+                SPAWN_COLUMN[type][orientation] = x;
+                SPAWN_ROW[type][orientation] = y;
+            }
+        }
+    }
+
     /**
      * Constructor. Creates a new game piece.
      * @param grid All of the blocks from the grid.
@@ -46,18 +159,16 @@ public class GamePiece {
     }
 
     /**
-     * Creates a random new game piece with a random shape, a random colour, a random orientation...
-     * So basically, a lot of randoms :)
+     * Creates a new game piece, with the shape, colour and orientation chosen by a piece generator.
+     * @param generator The piece generator.
      */
-    public void generateNewPiece() {
-
-        Random random = new Random();
+    public void generateNewPiece(PieceGenerator generator) {
 
-        //First, generate a random colour.
-        colour = chooseRandomColour(random);
+        //First, choose a shape, based on number.
+        type = generator.nextType();
 
-        //Secondly, generate a random shape, based on number.
-        int gen = random.nextInt(7);
+        //Secondly, choose a colour.
+        colour = Block.getPaletteColour(generator.nextColour(type));
 
         /*
         There are 7 types of blocks that can be generated, shown below. Let 0 represent empty space and 1
@@ -105,90 +216,20 @@ public class GamePiece {
         0010
         0000
          */
-
-        //I Piece.
-        if (gen == 0) {
-            Block block = new Block(1,0,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(1,1,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(1,2,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(1,3,colour);
-            gamePieceBlocks.add(block);
-        }
-        //J Piece.
-        else if (gen == 1) {
-            Block block = new Block(2,0,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(2,1,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(2,2,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(1,2,colour);
-            gamePieceBlocks.add(block);
-        }
-        //L Piece.
-        else if (gen == 2) {
-            Block block = new Block(1,0,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(1,1,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(1,2,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(2,2,colour);
-            gamePieceBlocks.add(block);
-        }
-        //O Piece.
-        else if (gen == 3) {
-            Block block = new Block(1,0,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(2,0,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(1,1,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(2,1,colour);
-            gamePieceBlocks.add(block);
-        }
-        //S Piece.
-        else if (gen == 4) {
-            Block block = new Block(3,0,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(2,0,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(2,1,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(1,1,colour);
-            gamePieceBlocks.add(block);
-        }
-        //Z Piece.
-        else if (gen == 5) {
-            Block block = new Block(1,0,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(2,0,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(2,1,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(3,1,colour);
-            gamePieceBlocks.add(block);
-        }
-        //T Piece.
-        else if (gen == 6) {
-            Block block = new Block(1,0,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(2,0,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(3,0,colour);
-            gamePieceBlocks.add(block);
-            block = new Block(2,1,colour);
-            gamePieceBlocks.add(block);
+        orientation = 0;
+        pieceX = SPAWN_X;
+        pieceY = SPAWN_Y;
+        for (int i = 0; i < SIZE; i ++) {
+            gamePieceBlocks.add(new Block(0,0,colour));
         }
+        updateBlocks();
 
         /*
-        Rotate randomly.
+        Rotate into the starting orientation. Rotating one step at a time keeps the game piece in the same place as
+        rotating it by hand would.
          */
-        gen = random.nextInt(4);
-        for (int i = 0; i < gen; i ++) {
+        int spawnOrientation = generator.nextOrientation(type);
+        for (int i = 0; i < spawnOrientation; i ++) {
             rotate();
         }
 
@@ -197,40 +238,28 @@ public class GamePiece {
     }
 
     /**
-     * Choose a random colour.
-     * @return A random colour.
+     * Puts the game piece in the given place, as it was when it was saved (see GameEngine.Keyframe). Nothing is
+     * checked, so the place must be one that the game piece was really in.
+     * @param type The type of shape.
+     * @param orientation The orientation.
+     * @param x The left most column of the game piece.
+     * @param y The top most row of the game piece.
+     * @param colourIndex The palette index of the colour of the blocks.
      */
-    private Color chooseRandomColour(Random random) {
-
-        //Generate a random number. Get the colour based off of that.
-        int gen = random.nextInt(8);
-
-        if (gen == 0) {
-            return Color.BLUE;
-        }
-        else if (gen == 1) {
-            return Color.RED;
-        }
-        else if (gen == 2) {
-            return Color.CYAN;
-        }
-        else if (gen == 3) {
-            return Color.GREEN;
-        }
-        else if (gen == 4) {
-            return Color.YELLOW;
-        }
-        else if (gen == 5) {
-            return Color.ORANGE;
-        }
-        //I like this colour.
-        else if (gen == 6) {
-            return Color.GRAY;
-        }
-        //I don`t like this colour.
-        else {
-            return Color.PINK;
-        }
+    public void restore(int type, int orientation, int x, int y, int colourIndex) {
+        gridBlocks.removeAll(gamePieceBlocks);
+        gamePieceBlocks.clear();
+
+        this.type = type;
+        this.orientation = orientation;
+        pieceX = x;
+        pieceY = y;
+        colour = Block.getPaletteColour(colourIndex);
+        for (int i = 0; i < SIZE; i ++) {
+            gamePieceBlocks.add(new Block(0,0,colour));
+        }
+        updateBlocks();
+        addBlocksToGrid();
     }
 
     /**
@@ -240,157 +269,91 @@ public class GamePiece {
     public void rotate() {
 
         /*
-        This method is very complex and difficult!
-        There are soooo many potential problems.
-        Firstly, when rotated, the game piece may collide with other blocks. We need to prevent rotation if it
-        is not possible. Therefore, create a copy of all of the blocks in the piece, and apply the rotation to them.
-        Check to see if the rotation results in any overlaps/collisions with other blocks. If no, it is safe
-        to rotate.
+        Rotation happens inside of the 4 by 4 mini grid that starts at the left most and top most blocks. Since
+        the top left corner of the new orientation is not in the same place, the game piece has to be moved down so
+        that it lines up with where the old rotation formula put it (see the static block at the top).
+        Then, make sure that it stays within the boundaries, and that it does not overlap any stationary blocks.
+        If it does, do not rotate.
         */
+        int newOrientation = (orientation + 1) % ORIENTATIONS;
+        int newX = pieceX;
+        int newY = pieceY + SIZE - SHAPE_WIDTH[type][orientation];
 
-        //Get copy.
-        ArrayList<Block> tempBlocks = copyBlocks(gamePieceBlocks);
-        //Attempt to rotate these blocks.
-        boolean success = attemptRotate(tempBlocks);
+        //Keep it within the grid.
+        newX = clampX(newOrientation, newX);
+        newY = clampY(newOrientation, newY);
 
-        //Successful; actually rotate now.
-        if (success == true) {
-            attemptRotate(gamePieceBlocks);
+        //Make sure its not touching any stationary blocks.
+        if (fits(newOrientation, newX, newY) == true) {
+            orientation = newOrientation;
+            pieceX = newX;
+            pieceY = newY;
+            updateBlocks();
         }
-
     }
 
     /**
-     * Rotates the blocks.
-     * @param blocks The blocks to rotate.
-     * @return True if rotation successful, false if rotation resulted in overlaps.
+     * Checks to see if the game piece would fit in the given place: every block has to be inside the grid (or above
+     * it), and no block may overlap a stationary block.
+     * @param orientation The orientation of the game piece.
+     * @param x The left most column of the game piece.
+     * @param y The top most row of the game piece.
+     * @return True for yes, false for no.
      */
-    private boolean attemptRotate(ArrayList<Block> blocks) {
-        //Loop through each block.
-        int offsetX = 1000;
-        int offsetY = 1000;
-
-        /*
-        Problem: we cant rotate the entire 'grid', as it will lead to unexpected results. Instead, we need to do a
-        'localized' rotation - that is, rotate just around the game piece. Its kinda hard to explain.
-         Offset represents the locations of the left most block and the top most blocks in the game piece.
-         We rotate starting from there. If we instead start rotating from (0,0), the game piece will most likely shift
-         as well as rotate, which is not what we want. This is kinda like setting the 'pivot' (sorta) of where to
-         rotate.
-         */
-        //Get left most and top most position.
-        for (Block block : blocks) {
-            if (block.getX()<offsetX) {
-                offsetX = block.getX();
-            }
-            if (block.getY() < offsetY) {
-                offsetY = block.getY();
+    private boolean fits(int orientation, int x, int y) {
+        int[] shapeX = SHAPE_X[type][orientation];
+        int[] shapeY = SHAPE_Y[type][orientation];
+        for (int i = 0; i < SIZE; i ++) {
+            if (grid.isCellBlocked(x + shapeX[i], y + shapeY[i]) == true) {
+                return false;
             }
         }
-
-        //Rotate just the 4 by 4 mini grid that contains the game piece.
-        for (Block block : blocks) {
-            int oldX = block.getX()-offsetX;
-            int oldY = block.getY()-offsetY;
-            /*
-            To rotate:
-            New x position is equal to the old y position.
-            The new y depends on the oldX.
-            The diagram below shows why:
-            123
-            456
-            789
-            rotated becomes:
-            369
-            258
-            147
-
-            The formula is:
-            newX = oldY
-            newY = SIZE - oldX - 1
-            Note that we also have to account for the offset, which the scenario above ignores.
-             */
-            //New x position is equal to the old y position.
-            int newX = oldY + offsetX;
-            //The new y depends on the oldX.
-            int newY = SIZE - oldX - 1 + offsetY;
-            //Update the blocks` position.
-            block.setX(newX);
-            block.setY(newY);
-        }
-
-        /*
-        Now, make sure that it stays within the boundaries.
-         */
-        keepWithinGrid(blocks);
-        //Make sure its not touching any stationary blocks.
-        if (hasCollided(blocks) == true) {
-            return false;
-        }
-        else {
-            return true;
-        }
+        return true;
     }
 
     /**
-     * Check to see if list of blocks has collided with any stationary blocks.
-     * @param blocks The blocks to check against the stationary blocks.
-     * @return True for yes, false for no.
+     * Gets the closest column to x where the game piece is not past the left or right boundaries.
+     * @param orientation The orientation of the game piece.
+     * @param x The left most column of the game piece.
+     * @return The column.
      */
-    private boolean hasCollided(ArrayList<Block> blocks) {
-        for (Block gamePieceBlock : blocks) {
-            //Check with finsihed bocks
-            for (Block stationaryBlock : gridBlocks) {
-                if (stationaryBlock.isPartOfGamePiece() == false) {
-
-                    //test
-//                    System.out.println(gamePieceBlock.getX()+" "+stationaryBlock.getX()+" "+gamePieceBlock.getY()+" "+stationaryBlock.getY());
-                    if (gamePieceBlock.getY() == stationaryBlock.getY() && gamePieceBlock.getX() == stationaryBlock.getX()) {
-                        return true;
-                    }
-                }
-            }
+    private int clampX(int orientation, int x) {
+        int boundRight = grid.getColumns() - SHAPE_WIDTH[type][orientation];
+        if (x > boundRight) {
+            x = boundRight;
         }
-        return false;
-    }
-
- /*   public void dropToBottom() {
-        boolean keepDropping = true;
-        while (keepDropping == true) {
-            keepDropping = moveDown();
+        if (x < 0) {
+            x = 0;
         }
-    }*/
+        return x;
+    }
 
     /**
-     * Keeps the game piece within bounds.
+     * Gets the closest row to y where the game piece is not past the bottom boundary.
+     * Note that we don`t have to check for collision with the top since there is no way that the user can move the
+     * piece up.
+     * @param orientation The orientation of the game piece.
+     * @param y The top most row of the game piece.
+     * @return The row.
      */
-    public void stayWithinBounds() {
-        keepWithinGrid(gamePieceBlocks);
+    private int clampY(int orientation, int y) {
+        int boundBottom = grid.getRows() - SHAPE_HEIGHT[type][orientation];
+        if (y > boundBottom) {
+            y = boundBottom;
+        }
+        return y;
     }
 
     /**
-     * Make sure the block group stays within the grid. If it is not, shift it so that it is.
+     * Keeps the game piece within bounds. If it is not, shift it so that it is.
      */
-    public void keepWithinGrid(ArrayList<Block> blocks) {
-        //Get the 'indices' of boundaries. Blocks are not allowed to go past these.
-        int boundLeft = 0;
-        int boundRight = grid.getColumns()-1;
-        int boundBottom = grid.getRows()-1;
-
-        //Loop through
-        for (Block block : blocks) {
-            while (block.getX() < boundLeft) {
-                shiftRight(blocks);
-            }
-            while (block.getX() > boundRight) {
-                shiftLeft(blocks);
-            }
-            while (block.getY() > boundBottom) {
-                shiftUp(blocks);
-            }
-
-            //Note that we don`t have to check for collision with the top since there is no way that the user can move
-            // the piece up.
+    public void stayWithinBounds() {
+        int newX = clampX(orientation, pieceX);
+        int newY = clampY(orientation, pieceY);
+        if (newX != pieceX || newY != pieceY) {
+            pieceX = newX;
+            pieceY = newY;
+            updateBlocks();
         }
     }
 
@@ -403,79 +366,89 @@ public class GamePiece {
         boolean ableToShift = canShiftDown();
 
         if (ableToShift == true) {
-            shiftDown(gamePieceBlocks);
+            pieceY ++;
+            updateBlocks();
         }
 
         return ableToShift;
     }
 
     /**
-     * Move the game piece one cell up.
+     * Gets the number of rows that the game piece can drop before it lands. Uses the skyline of the grid, so it does
+     * not have to try moving down one row at a time.
+     * @return The number of rows.
      */
-    public void moveUp() {
-        shiftUp(gamePieceBlocks);
+    public int getDropDistance() {
+        Board board = grid.getBoard();
+        int[] shapeX = SHAPE_X[type][orientation];
+        int[] shapeY = SHAPE_Y[type][orientation];
+        int distance = Integer.MAX_VALUE;
+        for (int i = 0; i < SIZE; i ++) {
+            distance = Math.min(distance, board.getDropDistance(pieceX + shapeX[i], pieceY + shapeY[i]));
+        }
+        return distance;
     }
 
     /**
-     * Move the game piece one cell left, if possible.
+     * Drops the game piece straight down, to where it lands.
      */
-    public void moveLeft() {
-        if (canShiftLeft() == true) {
-            shiftLeft(gamePieceBlocks);
+    public void dropToBottom() {
+        int distance = getDropDistance();
+        if (distance > 0) {
+            pieceY += distance;
+            updateBlocks();
         }
     }
 
     /**
-     * Move the game piece one cell right, if possible.
+     * Draws the 'ghost' of the game piece, which shows where it will land. Nothing is drawn if it has already landed.
+     * @param g The graphics object.
      */
-    public void moveRight() {
-        if (canShiftRight() == true) {
-            shiftRight(gamePieceBlocks);
+    public void drawGhost(Graphics g) {
+        int distance = getDropDistance();
+        if (distance == 0) {
+            return;
         }
-    }
-
-    /**
-     * Moves the game piece down one row/cell on the grid.
-     */
-    public void shiftDown(ArrayList<Block> blocks) {
-        for (Block block : blocks) {
-            int oldY = block.getY();
-            int newY = oldY + 1;
-            block.setY(newY);
+        int[] shapeX = SHAPE_X[type][orientation];
+        int[] shapeY = SHAPE_Y[type][orientation];
+        int colourIndex = gamePieceBlocks.get(0).getColourIndex();
+        for (int i = 0; i < SIZE; i ++) {
+            Block.drawGhostCell(g, pieceX + shapeX[i], pieceY + shapeY[i] + distance, colourIndex, grid.getX(), grid.getY());
         }
     }
 
     /**
-     * Moves the game piece up one row/cell on the grid.
+     * Move the game piece one cell up.
      */
-    public void shiftUp(ArrayList<Block> blocks) {
-        for (Block block : blocks) {
-            int oldY = block.getY();
-            int newY = oldY -1;
-            block.setY(newY);
-        }
+    public void moveUp() {
+        pieceY --;
+        updateBlocks();
     }
 
     /**
-     * Moves the game piece one column/cell left on the grid.
+     * Move the game piece one cell left, if possible.
+     * @return True if it moved, false if it was blocked.
      */
-    public void shiftLeft(ArrayList<Block> blocks) {
-        for (Block block : blocks) {
-            int oldX = block.getX();
-            int newX = oldX -1;
-            block.setX(newX);
+    public boolean moveLeft() {
+        if (canShiftLeft() == true) {
+            pieceX --;
+            updateBlocks();
+            return true;
         }
+        return false;
     }
 
     /**
-     * Moves the game piece one column/cell right on the grid.
+     * Move the game piece one cell right, if possible.
+     * @return True if it moved, false if it was blocked.
      */
-    public void shiftRight(ArrayList<Block> blocks) {
-        for (Block block : blocks) {
-            int oldX = block.getX();
-            int newX = oldX +1;
-            block.setX(newX);
+    public boolean moveRight() {
+        if (canShiftRight() == true) {
+            pieceX ++;
+            updateBlocks();
+            return true;
         }
+        return false;
     }
 
     /**
@@ -483,21 +456,7 @@ public class GamePiece {
      * @return True for yes, false for no.
      */
     private boolean canShiftDown() {
-        for (Block gamePieceBlock : gamePieceBlocks) {
-            //Check boundary.
-            if (gamePieceBlock.getY() >= grid.getRows() - 1) {
-                return false;
-            }
-            //Check with finsihed bocks
-            for (Block stationaryBlock : gridBlocks) {
-                if (stationaryBlock.isPartOfGamePiece() == false) {
-                    if (gamePieceBlock.getY() + 1 >= stationaryBlock.getY() && gamePieceBlock.getX() == stationaryBlock.getX()) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+        return fits(orientation, pieceX, pieceY + 1);
     }
 
     /**
@@ -505,21 +464,7 @@ public class GamePiece {
      * @return True for yes, false for no.
      */
     private boolean canShiftLeft() {
-        for (Block gamePieceBlock : gamePieceBlocks) {
-            //Check boundary.
-            if (gamePieceBlock.getX() -1 < 0) {
-                return false;
-            }
-            //Check with finsihed bocks
-            for (Block stationaryBlock : gridBlocks) {
-                if (stationaryBlock.isPartOfGamePiece() == false) {
-                    if (gamePieceBlock.getX() - 1 == stationaryBlock.getX() && gamePieceBlock.getY() == stationaryBlock.getY()) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+        return fits(orientation, pieceX - 1, pieceY);
     }
 
     /**
@@ -527,21 +472,40 @@ public class GamePiece {
      * @return True for yes, false for no.
      */
     private boolean canShiftRight() {
-        for (Block gamePieceBlock : gamePieceBlocks) {
-            //Check boundary.
-            if (gamePieceBlock.getX() + 1 > grid.getColumns()-1) {
-                return false;
-            }
-            //Check with finsihed bocks
-            for (Block stationaryBlock : gridBlocks) {
-                if (stationaryBlock.isPartOfGamePiece() == false) {
-                    if (gamePieceBlock.getX() + 1 == stationaryBlock.getX() && gamePieceBlock.getY() == stationaryBlock.getY()) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+        return fits(orientation, pieceX + 1, pieceY);
+    }
+
+    /**
+     * Moves each block of the game piece to where it belongs, according to the type, orientation and position.
+     */
+    private void updateBlocks() {
+        int[] shapeX = SHAPE_X[type][orientation];
+        int[] shapeY = SHAPE_Y[type][orientation];
+        for (int i = 0; i < SIZE; i ++) {
+            Block block = gamePieceBlocks.get(i);
+            block.setX(pieceX + shapeX[i]);
+            block.setY(pieceY + shapeY[i]);
+        }
+        markDirty();
+    }
+
+    /**
+     * Reports to the grid that the cells the game piece and its ghost used to cover, and the cells that they cover
+     * now, have changed. This way, only those cells need to be repainted.
+     */
+    private void markDirty() {
+        if (grid.getDirtyRegion() == null) {
+            return;
+        }
+        if (hasDirtyCells == true) {
+            grid.markDirty(dirtyX, dirtyY, dirtyW, dirtyH);
+        }
+        dirtyX = pieceX;
+        dirtyY = pieceY;
+        dirtyW = SHAPE_WIDTH[type][orientation];
+        dirtyH = SHAPE_HEIGHT[type][orientation] + getDropDistance();
+        grid.markDirty(dirtyX, dirtyY, dirtyW, dirtyH);
+        hasDirtyCells = true;
     }
 
     /**
@@ -559,6 +523,9 @@ public class GamePiece {
         //Add the blocks of this game piece to the grid.
         addBlocksToGrid();
 
+        //The cells reported to the old grid mean nothing to the new one.
+        hasDirtyCells = false;
+        markDirty();
     }
 
     /**
@@ -579,24 +546,8 @@ public class GamePiece {
         for (Block block : gamePieceBlocks) {
             block.setPartOfGamePiece(false);
         }
-    }
-
-    /**
-     * Make a 'deep copy' of the blocks. The new blocks will be completely different objects with the same value: it
-     * is not copying the reference.
-     * @param blocks The blocks to copy.
-     * @return The new copy.
-     */
-    private ArrayList<Block> copyBlocks(ArrayList<Block> blocks) {
-        ArrayList<Block> copiedBlocks = new ArrayList<>(blocks.size());
-        for (Block block : blocks) {
-            //Copy block. Cant clone, cause thats just gonna return a reference to same object.
-            Block newBlock = new Block(block.getX(),block.getY(),block.getColour());
-            newBlock.setPartOfGamePiece(block.isPartOfGamePiece());
-            copiedBlocks.add(newBlock);
-        }
-
-        return copiedBlocks;
+        //Store the blocks in the grid`s board.
+        grid.lockBlocks(gamePieceBlocks);
     }
 
     /*  Getters and setters */
@@ -605,6 +556,22 @@ public class GamePiece {
         return grid;
     }
 
+    public int getType() {
+        return type;
+    }
+
+    public int getOrientation() {
+        return orientation;
+    }
+
+    public int getPieceX() {
+        return pieceX;
+    }
+
+    public int getPieceY() {
+        return pieceY;
+    }
+
     /**
      * Gets all of the blocks in this game piece.
      * @return The blocks, stored inside an arrayList.
@@ -616,4 +583,65 @@ public class GamePiece {
     public static int getSIZE() {
         return SIZE;
     }
+
+    public static int getTYPES() {
+        return TYPES;
+    }
+
+    public static int getORIENTATIONS() {
+        return ORIENTATIONS;
+    }
+
+    /**
+     * Gets the x positions of the blocks of a shape, relative to the position of the game piece. The array is shared,
+     * so it must not be changed.
+     * @param type The type of shape.
+     * @param orientation The orientation.
+     * @return The x positions.
+     */
+    public static int[] getShapeX(int type, int orientation) {
+        return SHAPE_X[type][orientation];
+    }
+
+    /**
+     * Gets the y positions of the blocks of a shape, relative to the position of the game piece. The array is shared,
+     * so it must not be changed.
+     * @param type The type of shape.
+     * @param orientation The orientation.
+     * @return The y positions.
+     */
+    public static int[] getShapeY(int type, int orientation) {
+        return SHAPE_Y[type][orientation];
+    }
+
+    /**
+     * Gets the left most column of a new game piece when it first comes onto the game grid: where generateNewPiece
+     * puts it on the side grid, moved to the middle of the game grid by GameEngine.movePieceToGameGrid.
+     * @param type The type of shape.
+     * @param orientation The orientation it starts in.
+     * @param columns The number of columns of the game grid.
+     * @return The column.
+     */
+    public static int getSpawnX(int type, int orientation, int columns) {
+        //It is moved right one column at a time, and stops at the right side.
+        return Math.min(columns - SHAPE_WIDTH[type][orientation], SPAWN_COLUMN[type][orientation] + (columns - SIZE)/2);
+    }
+
+    /**
+     * Gets the top most row of a new game piece when it first comes onto the game grid. It starts above the grid.
+     * @param type The type of shape.
+     * @param orientation The orientation it starts in.
+     * @return The row.
+     */
+    public static int getSpawnY(int type, int orientation) {
+        return SPAWN_ROW[type][orientation] - SIZE;
+    }
+
+    public static int getShapeWidth(int type, int orientation) {
+        return SHAPE_WIDTH[type][orientation];
+    }
+
+    public static int getShapeHeight(int type, int orientation) {
+        return SHAPE_HEIGHT[type][orientation];
+    }
 }
@@ -0,0 +1,265 @@
+import java.awt.*;
+import java.util.ArrayList;
+
+/**
+ * A copy of everything about a game that is needed to draw it, taken at one point in time: the landed blocks, the
+ * current and next game pieces, and the score.
+ *
+ * The game logic runs on its own thread (see GameLoop), and publishes a new snapshot after every step. A snapshot
+ * never changes after it is made, so the thread that draws can use it while the game keeps going. The landed blocks
+ * only change when a game piece lands, so until then each snapshot shares them with the one before it.
+ */
+public class GameSnapshot {
+
+    //Counts up by one for each snapshot of a game.
+    final private long sequence;
+    //When the snapshot was taken, from System.nanoTime().
+    final private long time;
+
+    //The landed blocks, in the same form as in a Board.
+    final private int columns, rows;
+    final private int[] rowMasks;
+    final private byte[] colours;
+
+    //The cells covered by the current game piece, its colour, and how far it can drop before it lands.
+    final private int[] pieceX, pieceY;
+    final private int pieceColour;
+    final private int dropDistance;
+
+    //The cells covered by the next game piece, in the side grid, and its colour.
+    final private int[] nextX, nextY;
+    final private int nextColour;
+
+    //The state of the game.
+    final private int score;
+    final private int linesCleared;
+    final private int piecesPlaced;
+    final private boolean gameOver;
+
+    //How far the game piece is until gravity next drops it (from 0 to 1), and the time between drops.
+    final private double gravityProgress;
+    final private long dropTime;
+
+    /**
+     * Takes a snapshot of a game.
+     * @param engine The game.
+     * @param previous The last snapshot taken of the same game, or null if there is none. If no game piece has landed
+     *                 since, the landed blocks are shared with it instead of being copied.
+     */
+    public GameSnapshot(GameEngine engine, GameSnapshot previous) {
+        time = System.nanoTime();
+        sequence = previous == null ? 0 : previous.sequence + 1;
+
+        Board board = engine.getGameGrid().getBoard();
+        columns = board.getColumns();
+        rows = board.getRows();
+        piecesPlaced = engine.getPiecesPlaced();
+        if (previous != null && previous.piecesPlaced == piecesPlaced) {
+            rowMasks = previous.rowMasks;
+            colours = previous.colours;
+        }
+        else {
+            rowMasks = new int[rows];
+            colours = new byte[rows*columns];
+            board.copyCells(rowMasks, colours);
+        }
+
+        GamePiece currentGamePiece = engine.getCurrentGamePiece();
+        pieceX = new int[GamePiece.getSIZE()];
+        pieceY = new int[GamePiece.getSIZE()];
+        pieceColour = copyCells(currentGamePiece.getBlocks(), pieceX, pieceY);
+        dropDistance = currentGamePiece.getDropDistance();
+
+        nextX = new int[GamePiece.getSIZE()];
+        nextY = new int[GamePiece.getSIZE()];
+        nextColour = copyCells(engine.getNextGamePiece().getBlocks(), nextX, nextY);
+
+        score = engine.getScore();
+        linesCleared = engine.getLinesCleared();
+        gameOver = engine.isGameOver();
+        gravityProgress = engine.getGravityProgress(0);
+        dropTime = engine.getDropTime();
+    }
+
+    /**
+     * Copies the cells of the blocks of a game piece.
+     * @param blocks The blocks.
+     * @param x Receives the column of each block.
+     * @param y Receives the row of each block.
+     * @return The palette index of the colour of the blocks.
+     */
+    private static int copyCells(ArrayList<Block> blocks, int[] x, int[] y) {
+        for (int i = 0; i < x.length; i ++) {
+            x[i] = blocks.get(i).getX();
+            y[i] = blocks.get(i).getY();
+        }
+        return blocks.get(0).getColourIndex();
+    }
+
+    /**
+     * Draws the blocks of the game: the landed blocks and the current game piece on the game grid, the ghost of the
+     * current game piece, and the next game piece on the side grid.
+     * Only the rows of landed blocks inside of the area being repainted are drawn.
+     * @param g The graphics object.
+     * @param gameGrid Where to draw the game grid.
+     * @param sideGrid Where to draw the side grid.
+     * @param pieceOffsetY How far down to draw the current game piece, in pixels.
+     */
+    public void draw(Graphics g, Grid gameGrid, Grid sideGrid, int pieceOffsetY) {
+        int firstRow = 0;
+        int lastRow = rows - 1;
+        Rectangle clip = g.getClipBounds();
+        if (clip != null) {
+            firstRow = Math.max(firstRow, (clip.y - gameGrid.getY())/Block.getBlockHeight());
+            lastRow = Math.min(lastRow, (clip.y + clip.height - 1 - gameGrid.getY())/Block.getBlockHeight());
+        }
+        for (int row = firstRow; row <= lastRow; row ++) {
+            int mask = rowMasks[row];
+            //Visit only the filled cells of the row, lowest bit first.
+            while (mask != 0) {
+                int column = Integer.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+                Block.drawCell(g, column, row, colours[row*columns + column] - 1, gameGrid.getX(), gameGrid.getY());
+            }
+        }
+
+        for (int i = 0; i < pieceX.length; i ++) {
+            Block.drawCell(g, pieceX[i], pieceY[i], pieceColour, gameGrid.getX(), gameGrid.getY() + pieceOffsetY);
+        }
+        for (int i = 0; i < nextX.length; i ++) {
+            Block.drawCell(g, nextX[i], nextY[i], nextColour, sideGrid.getX(), sideGrid.getY());
+        }
+
+        //Show where the current game piece will land.
+        if (dropDistance > 0) {
+            for (int i = 0; i < pieceX.length; i ++) {
+                Block.drawGhostCell(g, pieceX[i], pieceY[i] + dropDistance, pieceColour, gameGrid.getX(),
+                        gameGrid.getY());
+            }
+        }
+    }
+
+    /**
+     * Reports everything that looks different in this snapshot compared to an older one, so that only that is
+     * repainted.
+     * @param dirtyRegion Where to report the changes.
+     * @param gameGrid Where the game grid is drawn.
+     * @param sideGrid Where the side grid is drawn.
+     * @param previous The older snapshot, or null to report everything.
+     */
+    public void markChanges(DirtyRegion dirtyRegion, Grid gameGrid, Grid sideGrid, GameSnapshot previous) {
+        if (previous == null || previous.columns != columns || previous.rows != rows) {
+            gameGrid.markAllDirty(dirtyRegion);
+            sideGrid.markAllDirty(dirtyRegion);
+            return;
+        }
+
+        //The rows of landed blocks that changed.
+        if (previous.rowMasks != rowMasks) {
+            for (int row = 0; row < rows; row ++) {
+                if (rowChanged(previous, row) == true) {
+                    gameGrid.markDirty(dirtyRegion, 0, row, columns, 1);
+                }
+            }
+        }
+
+        //Where the current game piece and its ghost were, and are now.
+        if (previous.pieceColour != pieceColour || previous.dropDistance != dropDistance
+                || sameCells(previous.pieceX, previous.pieceY, pieceX, pieceY) == false) {
+            markPiece(dirtyRegion, gameGrid, previous.pieceX, previous.pieceY, previous.dropDistance);
+            markPiece(dirtyRegion, gameGrid, pieceX, pieceY, dropDistance);
+        }
+
+        //The next game piece.
+        if (previous.nextColour != nextColour || sameCells(previous.nextX, previous.nextY, nextX, nextY) == false) {
+            sideGrid.markAllDirty(dirtyRegion);
+        }
+    }
+
+    /**
+     * Checks to see if a row of landed blocks is different than in another snapshot.
+     * @param other The other snapshot.
+     * @param row The row.
+     * @return True for yes, false for no.
+     */
+    private boolean rowChanged(GameSnapshot other, int row) {
+        if (rowMasks[row] != other.rowMasks[row]) {
+            return true;
+        }
+        for (int column = 0; column < columns; column ++) {
+            if (colours[row*columns + column] != other.colours[row*columns + column]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks to see if two sets of cells are the same.
+     * @return True for yes, false for no.
+     */
+    private static boolean sameCells(int[] x1, int[] y1, int[] x2, int[] y2) {
+        for (int i = 0; i < x1.length; i ++) {
+            if (x1[i] != x2[i] || y1[i] != y2[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reports the rectangle of cells covering a game piece and its ghost.
+     */
+    private static void markPiece(DirtyRegion dirtyRegion, Grid grid, int[] x, int[] y, int dropDistance) {
+        int left = Integer.MAX_VALUE, top = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE, bottom = Integer.MIN_VALUE;
+        for (int i = 0; i < x.length; i ++) {
+            left = Math.min(left, x[i]);
+            top = Math.min(top, y[i]);
+            right = Math.max(right, x[i]);
+            bottom = Math.max(bottom, y[i]);
+        }
+        //Include one more row, in case the game piece was drawn part of the way to the next row.
+        grid.markDirty(dirtyRegion, left, top, right - left + 1, bottom - top + 2 + dropDistance);
+    }
+
+    /**
+     * Gets how far the game piece is until gravity next drops it, allowing for the time that has passed since the
+     * snapshot was taken.
+     * @param currentTime The current time, from System.nanoTime().
+     * @return A number from 0 (it just dropped) to 1 (it is about to drop).
+     */
+    public double getGravityProgress(long currentTime) {
+        return Math.min(1, gravityProgress + (currentTime - time)/(double) dropTime);
+    }
+
+    /*  Getters */
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public int getDropDistance() {
+        return dropDistance;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLinesCleared() {
+        return linesCleared;
+    }
+
+    public int getPiecesPlaced() {
+        return piecesPlaced;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+}
@@ -12,8 +12,14 @@ public class Grid {
     //The position and and dimensions of the grid.
     private int x, y, w, h;
 
-    //All of the blocks in this grid.
+    //The blocks of the game pieces that are currently in this grid. Once a block lands, it is stored in the board.
     private ArrayList<Block> blocks = new ArrayList<>(0);
+
+    //All of the blocks that have landed on this grid.
+    private Board board;
+
+    //Where to report the parts of the grid that change, so they can be repainted. Null if nobody needs to know.
+    private DirtyRegion dirtyRegion = null;
     
     //The colours to draw.
     final static private Color GRID_BACKGROUND_COLOUR = new Color(0, 70, 100);
@@ -26,8 +32,8 @@ public class Grid {
 
     //Whether or not to draw the red terminal line at the top.
     private boolean drawTerminalLine = false;
-    //Where the terminal line is.
-    final private static int TERMINAL_LINE_ROW = 0;
+    //Where the terminal line is. It is never cleared, even when it is full (see clearFullRows).
+    final static int TERMINAL_LINE_ROW = 0;
 
     /**
      * Constructor. Takes in positions and dimensions as parameters.
@@ -47,6 +53,7 @@ public class Grid {
         int blockHeight = Block.getBlockHeight();
         columns = w/blockWidth;
         rows = h/blockHeight;
+        board = new Board(columns, rows);
 
         //Defaults.
         drawTerminalLine = false;
@@ -56,15 +63,16 @@ public class Grid {
      * Draw the grid.
      */
     public void draw(Graphics g) {
-        drawGrid(g);
+        drawBackground(g);
         drawBlocks(g);
     }
 
     /**
-     * Draw the lines of the grid.
+     * Draw the background and the lines of the grid. These never change during a game, so they can be drawn once
+     * into a BackgroundLayer.
      * @param g The graphics object.
      */
-    private void drawGrid(Graphics g) {
+    public void drawBackground(Graphics g) {
         int blockWidth = Block.getBlockWidth();
         int blockHeight = Block.getBlockHeight();
 
@@ -106,10 +114,28 @@ public class Grid {
     }
 
     /**
-     * Draw all of the game blocks that are on the grid.
+     * Draw all of the game blocks that are on the grid: first the landed blocks stored in the board, and then the
+     * blocks of any game piece.
      * @param g The graphics object used to draw.
      */
-    private void drawBlocks(Graphics g) {
+    public void drawBlocks(Graphics g) {
+        //Only the rows inside of the area being repainted need to be drawn.
+        int firstRow = 0;
+        int lastRow = rows - 1;
+        Rectangle clip = g.getClipBounds();
+        if (clip != null) {
+            firstRow = Math.max(firstRow, (clip.y - y)/Block.getBlockHeight());
+            lastRow = Math.min(lastRow, (clip.y + clip.height - 1 - y)/Block.getBlockHeight());
+        }
+        for (int row = firstRow; row <= lastRow; row ++) {
+            int mask = board.getRowMask(row);
+            //Visit only the filled cells of the row, lowest bit first.
+            while (mask != 0) {
+                int column = Integer.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+                Block.drawCell(g, column, row, board.getColourIndex(column, row), x, y);
+            }
+        }
     	for (Block block : blocks) {
     	    block.draw(g,x,y);
         }
@@ -120,6 +146,41 @@ public class Grid {
      */
     public void removeAllBlocks() {
         blocks.clear();
+        board.clear();
+        markAllDirty();
+    }
+
+    /**
+     * Lands the blocks on the grid: they are stored in the board, and are no longer drawn as game piece blocks.
+     * @param landedBlocks The blocks that have landed.
+     */
+    public void lockBlocks(ArrayList<Block> landedBlocks) {
+        for (Block block : landedBlocks) {
+            board.fillCell(block.getX(), block.getY(), block.getColourIndex());
+            markDirty(block.getX(), block.getY(), 1, 1);
+        }
+        blocks.removeAll(landedBlocks);
+    }
+
+    /**
+     * Checks to see if a landed block fills the cell.
+     * @param column The column of the cell.
+     * @param row The row of the cell.
+     * @return True for yes, false for no.
+     */
+    public boolean isCellFilled(int column, int row) {
+        return board.isFilled(column, row);
+    }
+
+    /**
+     * Checks to see if a block can not be moved into the cell, because the cell is past the sides or the bottom
+     * of the grid, or a landed block fills it. Cells above the grid are open.
+     * @param column The column of the cell.
+     * @param row The row of the cell.
+     * @return True if blocked, false if not.
+     */
+    public boolean isCellBlocked(int column, int row) {
+        return board.isBlocked(column, row);
     }
 
     /**
@@ -129,27 +190,7 @@ public class Grid {
      * @return True for yes, false for no.
      */
     public boolean horizontalLineFormed(int row) {
-        int blockNum = 0;
-        for (Block block : blocks) {
-        	if (block.isPartOfGamePiece() == false) {
-        	    //Block is in this row.
-	            if (block.getY() == row) {
-	                blockNum ++;
-	            }
-        	}
-//            System.out.println(block.getY());
-
-        }
-        
-//        System.out.println(blockNum);
-
-        //The roll is full.
-        if (blockNum >= columns) {
-            return true;
-        }
-        else {
-            return false;
-        }
+        return board.isRowFull(row);
     }
 
     /**
@@ -157,60 +198,86 @@ public class Grid {
      * @param row The row in which to delete all the blocks.
      */
     public void deleteRow(int row) {
-       /* for (Block block : blocks) {
-            if (block.getY() == row) {
-                blocks.remove(blocks.get(1));
-            }
-        }*/
-        
-        //Remove all blocks that are on this row.
-        ArrayList<Block> toRemove = new ArrayList<>();
-        //Can`t delete directly from 'blocks' during iteration, because it will lead to ConcurrentModificationException.
-        for (Block block : blocks) {
-            if (block.getY() == row) {
-                toRemove.add(block);
-            }
-        }
-        blocks.removeAll(toRemove);
+        board.clearRow(row);
+        markDirty(0, row, columns, 1);
     }
     
+    /**
+     * Deletes every full row below the terminal line, and drops the blocks above them to fill the gaps.
+     * @return The rows that were deleted, from top to bottom.
+     */
+    public int[] clearFullRows() {
+        int[] clearedRows = board.clearFullRows(TERMINAL_LINE_ROW + 1);
+        if (clearedRows.length > 0) {
+            //Everything above the lowest deleted row moved, which also changes where game pieces will land.
+            markAllDirty();
+        }
+        return clearedRows;
+    }
+
     /**
      * Checks to see if any block is on the terminal line.
      * @return True if yes, false for no.
      */
     public boolean blockOnTerminalLine() {
-    	for (Block block : blocks) {
-    		if (block.isPartOfGamePiece() == false) {
-    			if (block.getY() == TERMINAL_LINE_ROW) {
-    				return true;
-    			}
-    		}
-    	}
-    	return false;
+        return board.isRowEmpty(TERMINAL_LINE_ROW) == false;
     }
 
     /**
      * Method that needs to be called when a row is deleted.
-     * Drops all of the blocks above the row by one unit (as long as it is not a part of a game piece).
+     * Drops all of the landed blocks above the row by one unit.
      * @param row The row that was just deleted.
      */
     public void dropBlocks(int row) {
-        for (Block block : blocks) {
-            //Make sure its not a part of a game piece.
-            if (block.isPartOfGamePiece() == false) {
-                //Move all blocks above down.
-                if (block.getY() < row) {
-                    int oldY = block.getY();
-                    int newY = oldY+1;
-//                    System.out.println("dropped " + oldY + " " + newY);
-                    block.setY(newY);
-                }
-            }
+        board.dropRowsAbove(row);
+        markAllDirty();
+    }
+
+    /**
+     * Reports that some cells of the grid have changed, so that they will be repainted.
+     * @param column The left most column.
+     * @param row The top most row.
+     * @param columnCount The number of columns.
+     * @param rowCount The number of rows.
+     */
+    public void markDirty(int column, int row, int columnCount, int rowCount) {
+        markDirty(dirtyRegion, column, row, columnCount, rowCount);
+    }
+
+    /**
+     * Reports that some cells of the grid have changed to the given dirty region.
+     * @param dirtyRegion Where to report the change. Nothing happens if it is null.
+     * @param column The left most column.
+     * @param row The top most row.
+     * @param columnCount The number of columns.
+     * @param rowCount The number of rows.
+     */
+    public void markDirty(DirtyRegion dirtyRegion, int column, int row, int columnCount, int rowCount) {
+        if (dirtyRegion != null) {
+            dirtyRegion.add(x + column*Block.getBlockWidth(), y + row*Block.getBlockHeight(),
+                    columnCount*Block.getBlockWidth(), rowCount*Block.getBlockHeight());
         }
     }
 
     /**
-     * Gets all of the blocks in the grid.
+     * Reports that the whole grid has changed, so that it will be repainted.
+     */
+    public void markAllDirty() {
+        markAllDirty(dirtyRegion);
+    }
+
+    /**
+     * Reports that the whole grid has changed to the given dirty region.
+     * @param dirtyRegion Where to report the change. Nothing happens if it is null.
+     */
+    public void markAllDirty(DirtyRegion dirtyRegion) {
+        if (dirtyRegion != null) {
+            dirtyRegion.add(x, y, w, h);
+        }
+    }
+
+    /**
+     * Gets all of the game piece blocks in the grid.
      * @return All the blocks in the form of an arrayList.
      */
     public ArrayList<Block> getBlocks() {
@@ -219,10 +286,39 @@ public class Grid {
 
     /*  Getters and Setters */
 
+    public DirtyRegion getDirtyRegion() {
+        return dirtyRegion;
+    }
+
+    public void setDirtyRegion(DirtyRegion dirtyRegion) {
+        this.dirtyRegion = dirtyRegion;
+    }
+
     public void setDrawTerminalLine(boolean drawTerminalLine) {
         this.drawTerminalLine = drawTerminalLine;
     }
 
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Gets the Zobrist hash of the landed blocks (see Board.getHash). It is kept up to date as blocks land and rows
+     * are deleted, so it costs nothing to get.
+     * @return The hash.
+     */
+    public long getHash() {
+        return board.getHash();
+    }
+
     public int getRows() {
         return rows;
     }
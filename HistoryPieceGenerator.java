@@ -0,0 +1,84 @@
+/**
+ * A generator that remembers the last few shapes, and tries not to repeat them. Each shape is chosen at random; if it
+ * is one of the remembered shapes, it is chosen again, up to a few times, and the last choice is kept either way.
+ *
+ * Repeats are rare, but unlike the 7-bag there is no fixed cycle, so the order is harder to predict. The history
+ * starts off full of S and Z pieces, and the first game piece is never an S, Z or O, since those are the hardest to
+ * place on an empty grid.
+ */
+public class HistoryPieceGenerator extends RandomPieceGenerator {
+
+    //The number of shapes that are remembered, and the most times a shape is chosen again.
+    final private static int HISTORY_SIZE = 4;
+    final private static int ROLLS = 6;
+
+    //The shapes that are never the first game piece.
+    final private static int[] FIRST_PIECE_TYPES = {GamePiece.TYPE_I, GamePiece.TYPE_J, GamePiece.TYPE_L,
+            GamePiece.TYPE_T};
+
+    //The last shapes chosen, with the oldest at index 'oldest'.
+    private int[] history = {GamePiece.TYPE_Z, GamePiece.TYPE_S, GamePiece.TYPE_Z, GamePiece.TYPE_S};
+    private int oldest = 0;
+    //Whether or not the first game piece has been chosen yet.
+    private boolean first = true;
+
+    /**
+     * Constructor.
+     * @param seed The seed.
+     */
+    public HistoryPieceGenerator(long seed) {
+        super(seed);
+    }
+
+    @Override
+    protected RandomPieceGenerator create(long seed) {
+        return new HistoryPieceGenerator(seed);
+    }
+
+    @Override
+    public String getName() {
+        return "history";
+    }
+
+    @Override
+    public int nextType() {
+        int type;
+        if (first == true) {
+            type = FIRST_PIECE_TYPES[random.nextInt(FIRST_PIECE_TYPES.length)];
+            first = false;
+        }
+        else {
+            type = random.nextInt(GamePiece.getTYPES());
+            for (int roll = 1; roll < ROLLS && inHistory(type) == true; roll ++) {
+                type = random.nextInt(GamePiece.getTYPES());
+            }
+        }
+
+        //Forget the oldest shape, and remember this one.
+        history[oldest] = type;
+        oldest = (oldest + 1) % HISTORY_SIZE;
+        return type;
+    }
+
+    @Override
+    protected void copyState(RandomPieceGenerator generator) {
+        HistoryPieceGenerator historyGenerator = (HistoryPieceGenerator) generator;
+        System.arraycopy(history, 0, historyGenerator.history, 0, HISTORY_SIZE);
+        historyGenerator.oldest = oldest;
+        historyGenerator.first = first;
+    }
+
+    /**
+     * Checks to see if a shape is one of the last shapes chosen.
+     * @param type The type of shape.
+     * @return True for yes, false for no.
+     */
+    private boolean inHistory(int type) {
+        for (int i = 0; i < HISTORY_SIZE; i ++) {
+            if (history[i] == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,112 @@
+import java.util.ArrayList;
+
+/**
+ * Finds which component is under a point on the screen, without checking every component.
+ *
+ * The area covered by the components is split into a grid of square cells, and each cell remembers which components
+ * overlap it. To find the component under a point, only the few components in the cell that the point is in need to
+ * be checked.
+ *
+ * The index is built from where the components are when build() is called. If any of them move or change size, or
+ * the list of components changes, build() must be called again.
+ */
+public class HitTestIndex {
+
+    //The size of each cell, in pixels.
+    final private static int CELL_SIZE = 64;
+
+    //The components, in the order that they were given.
+    private ArrayList<? extends TextComponent> components = new ArrayList<>(0);
+
+    //The top left corner of the grid, and its size in cells.
+    private int gridX, gridY;
+    private int columns = 0, rows = 0;
+    //For each cell, the indexes of the components that overlap it, from first to last.
+    private int[][] cells = new int[0][];
+
+    //Shared by cells with no components in them.
+    final private static int[] NO_COMPONENTS = new int[0];
+
+    /**
+     * Builds the index.
+     * @param components The components.
+     */
+    public void build(ArrayList<? extends TextComponent> components) {
+        this.components = components;
+        if (components.isEmpty() == true) {
+            columns = 0;
+            rows = 0;
+            cells = new int[0][];
+            return;
+        }
+
+        //Find the area covered by all of the components.
+        int left = Integer.MAX_VALUE, top = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE, bottom = Integer.MIN_VALUE;
+        for (TextComponent component : components) {
+            left = Math.min(left, component.getX());
+            top = Math.min(top, component.getY());
+            right = Math.max(right, component.getX() + component.getW());
+            bottom = Math.max(bottom, component.getY() + component.getH());
+        }
+        gridX = left;
+        gridY = top;
+        columns = Math.max(1, (right - left + CELL_SIZE - 1)/CELL_SIZE);
+        rows = Math.max(1, (bottom - top + CELL_SIZE - 1)/CELL_SIZE);
+
+        //Count how many components overlap each cell, and then fill them in.
+        int[] counts = new int[columns*rows];
+        for (int pass = 0; pass < 2; pass ++) {
+            if (pass == 1) {
+                cells = new int[counts.length][];
+                for (int i = 0; i < counts.length; i ++) {
+                    cells[i] = counts[i] == 0 ? NO_COMPONENTS : new int[counts[i]];
+                    counts[i] = 0;
+                }
+            }
+            for (int i = 0; i < components.size(); i ++) {
+                TextComponent component = components.get(i);
+                int firstColumn = (component.getX() - gridX)/CELL_SIZE;
+                int lastColumn = Math.min(columns - 1, (component.getX() + component.getW() - gridX)/CELL_SIZE);
+                int firstRow = (component.getY() - gridY)/CELL_SIZE;
+                int lastRow = Math.min(rows - 1, (component.getY() + component.getH() - gridY)/CELL_SIZE);
+                for (int row = firstRow; row <= lastRow; row ++) {
+                    for (int column = firstColumn; column <= lastColumn; column ++) {
+                        int cell = row*columns + column;
+                        if (pass == 1) {
+                            cells[cell][counts[cell]] = i;
+                        }
+                        counts[cell] ++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the component under a point. The edges of a component do not count as being inside of it, the same as in
+     * TextComponent.checkMouseOver.
+     * @param x The x coordinate of the point.
+     * @param y The y coordinate of the point.
+     * @return The first component (in the order they were given) under the point, or null if there is none.
+     */
+    public TextComponent getComponentAt(int x, int y) {
+        if (x < gridX || y < gridY) {
+            return null;
+        }
+        int column = (x - gridX)/CELL_SIZE;
+        int row = (y - gridY)/CELL_SIZE;
+        if (column >= columns || row >= rows) {
+            return null;
+        }
+
+        for (int index : cells[row*columns + column]) {
+            TextComponent component = components.get(index);
+            if (x > component.getX() && x < component.getX() + component.getW()
+                    && y > component.getY() && y < component.getY() + component.getH()) {
+                return component;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,110 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queue of key presses and releases, each with the time it happened. Key events are added on the thread that
+ * receives them, and taken off by the game loop, which applies them at the right point in game time.
+ *
+ * The queue holds a fixed number of events in a ring, and never locks or allocates. It only works with a single
+ * thread adding events and a single thread taking them off. If it fills up, new events are thrown away (and counted),
+ * since that only happens if the game loop has stopped taking them off.
+ */
+public class InputQueue {
+
+    //The most events that can be waiting at once. Must be a power of two.
+    final private static int CAPACITY = 256;
+    final private static int MASK = CAPACITY - 1;
+
+    //The events: which input, whether it was pressed or released, and when.
+    private GameEngine.Input[] inputs = new GameEngine.Input[CAPACITY];
+    private boolean[] pressed = new boolean[CAPACITY];
+    private long[] times = new long[CAPACITY];
+
+    //The number of events ever added, and ever taken off. Only the adding thread changes head, and only the game
+    //loop changes tail; each one reading the other's is what hands the events across.
+    private AtomicLong head = new AtomicLong();
+    private AtomicLong tail = new AtomicLong();
+
+    //The number of events that were thrown away because the queue was full.
+    private AtomicLong droppedEvents = new AtomicLong();
+
+    /**
+     * Adds an event. Must only be called from one thread.
+     * @param input The input.
+     * @param isPressed True if the key was pressed, false if it was released.
+     * @param time When it happened, from System.nanoTime().
+     * @return True if it was added, false if the queue was full.
+     */
+    public boolean offer(GameEngine.Input input, boolean isPressed, long time) {
+        long currentHead = head.get();
+        if (currentHead - tail.get() == CAPACITY) {
+            droppedEvents.incrementAndGet();
+            return false;
+        }
+        int index = (int) (currentHead & MASK);
+        inputs[index] = input;
+        pressed[index] = isPressed;
+        times[index] = time;
+        //Publish the event to the game loop.
+        head.lazySet(currentHead + 1);
+        return true;
+    }
+
+    /**
+     * Checks to see if there are no events waiting.
+     * @return True for yes, false for no.
+     */
+    public boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+
+    /**
+     * Gets the time of the next event. Must only be called from the game loop, and only if the queue is not empty.
+     * @return The time, from System.nanoTime().
+     */
+    public long peekTime() {
+        return times[(int) (tail.get() & MASK)];
+    }
+
+    /**
+     * Gets the input of the next event. Must only be called from the game loop, and only if the queue is not empty.
+     * @return The input.
+     */
+    public GameEngine.Input peekInput() {
+        return inputs[(int) (tail.get() & MASK)];
+    }
+
+    /**
+     * Gets whether the next event is a press or a release. Must only be called from the game loop, and only if the
+     * queue is not empty.
+     * @return True if it was pressed, false if it was released.
+     */
+    public boolean peekPressed() {
+        return pressed[(int) (tail.get() & MASK)];
+    }
+
+    /**
+     * Takes the next event off of the queue. Must only be called from the game loop.
+     */
+    public void remove() {
+        long currentTail = tail.get();
+        inputs[(int) (currentTail & MASK)] = null;
+        tail.lazySet(currentTail + 1);
+    }
+
+    /**
+     * Takes all of the events off of the queue. Must only be called from the game loop.
+     */
+    public void clear() {
+        while (isEmpty() == false) {
+            remove();
+        }
+    }
+
+    /**
+     * Gets the number of events that were thrown away because the queue was full.
+     * @return The number.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+}
@@ -0,0 +1,144 @@
+import java.awt.*;
+
+/**
+ * Measures how long the game takes to do its work:
+ * - how long each paint of the panel takes,
+ * - how long each step of the game logic takes,
+ * - how long it takes from a key being pressed until the game acts on it.
+ * Each measurement goes into a LatencyHistogram. The results can be shown on the screen with drawHud(), or read by
+ * other code with getSnapshot().
+ */
+public class Instrumentation {
+
+    //The histograms.
+    private LatencyHistogram paintTimes = new LatencyHistogram();
+    private LatencyHistogram tickTimes = new LatencyHistogram();
+    private LatencyHistogram inputLatencies = new LatencyHistogram();
+
+    //The colours of the HUD.
+    final private static Color HUD_BACKGROUND_COLOUR = new Color(0, 0, 0, 170);
+    final private static Color HUD_TEXT_COLOUR = Color.green;
+    final private static Font HUD_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 13);
+    //The size of the HUD.
+    final private static int HUD_WIDTH = 420;
+    final private static int HUD_LINE_HEIGHT = 16;
+    final private static int HUD_MARGIN = 8;
+
+    /**
+     * The results of a single histogram, at the time the snapshot was taken. All times are in nanoseconds.
+     */
+    public static class Stats {
+        final public long count;
+        final public long p50;
+        final public long p99;
+        final public long max;
+
+        private Stats(LatencyHistogram histogram) {
+            count = histogram.getCount();
+            p50 = histogram.getPercentile(50);
+            p99 = histogram.getPercentile(99);
+            max = histogram.getMax();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d p50=%.2fms p99=%.2fms max=%.2fms", count, p50/1e6, p99/1e6, max/1e6);
+        }
+    }
+
+    /**
+     * The results of all of the histograms, at the time the snapshot was taken.
+     */
+    public static class Snapshot {
+        final public Stats paintTime;
+        final public Stats tickTime;
+        final public Stats inputLatency;
+
+        private Snapshot(Instrumentation instrumentation) {
+            paintTime = new Stats(instrumentation.paintTimes);
+            tickTime = new Stats(instrumentation.tickTimes);
+            inputLatency = new Stats(instrumentation.inputLatencies);
+        }
+
+        @Override
+        public String toString() {
+            return "paint: " + paintTime + ", tick: " + tickTime + ", input: " + inputLatency;
+        }
+    }
+
+    /**
+     * Records how long a paint took.
+     * @param time The time, in nanoseconds.
+     */
+    public void recordPaintTime(long time) {
+        paintTimes.record(time);
+    }
+
+    /**
+     * Records how long a step of the game logic took.
+     * @param time The time, in nanoseconds.
+     */
+    public void recordTickTime(long time) {
+        tickTimes.record(time);
+    }
+
+    /**
+     * Records how long it took for an input to be acted on.
+     * @param time The time, in nanoseconds.
+     */
+    public void recordInputLatency(long time) {
+        inputLatencies.record(time);
+    }
+
+    /**
+     * Gets the current results of all of the measurements.
+     * @return The results.
+     */
+    public Snapshot getSnapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Throws away all of the measurements so far.
+     */
+    public void reset() {
+        paintTimes.reset();
+        tickTimes.reset();
+        inputLatencies.reset();
+    }
+
+    /**
+     * Draws the current results in a box on the screen.
+     * @param g The graphics object.
+     * @param x The left edge of the box.
+     * @param y The top edge of the box.
+     * @param extraLines Any other lines of text to show at the bottom of the box. Can be empty.
+     */
+    public void drawHud(Graphics g, int x, int y, String... extraLines) {
+        Snapshot snapshot = getSnapshot();
+        String[] lines = new String[4 + extraLines.length];
+        lines[0] = "          p50      p99      max";
+        lines[1] = formatLine("paint", snapshot.paintTime);
+        lines[2] = formatLine("tick", snapshot.tickTime);
+        lines[3] = formatLine("input", snapshot.inputLatency);
+        System.arraycopy(extraLines, 0, lines, 4, extraLines.length);
+
+        g.setColor(HUD_BACKGROUND_COLOUR);
+        g.fillRect(x, y, HUD_WIDTH, lines.length*HUD_LINE_HEIGHT + HUD_MARGIN*2);
+        g.setColor(HUD_TEXT_COLOUR);
+        g.setFont(HUD_FONT);
+        for (int i = 0; i < lines.length; i ++) {
+            g.drawString(lines[i], x + HUD_MARGIN, y + HUD_MARGIN + (i + 1)*HUD_LINE_HEIGHT - 4);
+        }
+    }
+
+    /**
+     * Formats the results of a single histogram as one line of the HUD.
+     * @param name The name of the measurement.
+     * @param stats The results.
+     * @return The line.
+     */
+    private static String formatLine(String name, Stats stats) {
+        return String.format("%-6s %6.2fms %6.2fms %6.2fms", name, stats.p50/1e6, stats.p99/1e6, stats.max/1e6);
+    }
+}
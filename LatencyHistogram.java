@@ -0,0 +1,126 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations, in nanoseconds, in the style of an HDR histogram: values are sorted into buckets whose
+ * widths grow with the value, so that every value is stored to within about 3% of what it really was, from a single
+ * nanosecond up to several minutes, in a fixed amount of memory.
+ *
+ * Recording a value never locks and never allocates, so it can be done from any thread, every frame. Reading the
+ * percentiles while values are being recorded gives an answer that is very nearly, but not exactly, up to date.
+ */
+public class LatencyHistogram {
+
+    //Each power of two is split into this many buckets (2 to the power of SUB_BUCKET_BITS).
+    final private static int SUB_BUCKET_BITS = 5;
+    final private static int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    //The largest value that can be stored; larger values are stored as this. About 18 minutes.
+    final private static long MAX_VALUE = (1L << 40) - 1;
+
+    //The number of values in each bucket.
+    private AtomicLongArray counts = new AtomicLongArray(getBucketIndex(MAX_VALUE) + 1);
+    //The number of values, and the largest one.
+    private AtomicLong totalCount = new AtomicLong();
+    private AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Adds a value.
+     * @param value The duration, in nanoseconds.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        else if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+        counts.incrementAndGet(getBucketIndex(value));
+        totalCount.incrementAndGet();
+
+        //Keep the largest value.
+        long max = maxValue.get();
+        while (value > max && maxValue.compareAndSet(max, value) == false) {
+            max = maxValue.get();
+        }
+    }
+
+    /**
+     * Gets the value that the given percentage of all values are smaller than or equal to.
+     * @param percentile The percentage, from 0 to 100.
+     * @return The value, in nanoseconds, or 0 if nothing has been recorded.
+     */
+    public long getPercentile(double percentile) {
+        long total = totalCount.get();
+        if (total == 0) {
+            return 0;
+        }
+        //The number of values that need to be at or below the answer.
+        long target = Math.max(1, (long) Math.ceil(total*Math.min(percentile, 100)/100));
+
+        long count = 0;
+        for (int i = 0; i < counts.length(); i ++) {
+            count += counts.get(i);
+            if (count >= target) {
+                return Math.min(getBucketValue(i), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+
+    /**
+     * Gets the largest value.
+     * @return The value, in nanoseconds.
+     */
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    /**
+     * Gets the number of values.
+     * @return The number.
+     */
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Removes all of the values.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i ++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        maxValue.set(0);
+    }
+
+    /**
+     * Gets the bucket that a value belongs in.
+     * Small values get a bucket each. Above that, the top SUB_BUCKET_BITS + 1 bits of the value pick the bucket,
+     * within the buckets for its power of two.
+     * @param value The value.
+     * @return The index of the bucket.
+     */
+    private static int getBucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT*2) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift*SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * Gets the largest value that belongs in a bucket.
+     * @param index The index of the bucket.
+     * @return The value.
+     */
+    private static long getBucketValue(int index) {
+        if (index < SUB_BUCKET_COUNT*2) {
+            return index;
+        }
+        int shift = index/SUB_BUCKET_COUNT - 1;
+        long subBucket = index - shift*SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
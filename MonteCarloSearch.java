@@ -0,0 +1,295 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Chooses between placements of the current game piece by playing out many possible futures after each one (Monte
+ * Carlo rollouts), instead of only looking at the next game piece.
+ *
+ * A rollout lands the current game piece in one of the candidate placements, then lands the next game piece and
+ * 'depth' more game pieces, each one in its best place by the weights of the AutoPlayer (a greedy player), and scores
+ * the board at the end. The game pieces after the next one are not known, so they are chosen by a fork of the game`s
+ * own piece generator (see PieceGenerator.fork), which gives shapes the game could really give. A candidate is scored
+ * by the average of its rollouts.
+ *
+ * The rollouts are numbered, and rollout n plays candidate (n % count) with the future of round (n / count), so every
+ * candidate is tried against the same futures, and a difference in the averages comes from the placements rather than
+ * from luck. Each thread of the ForkJoinPool takes the next number, plays it, and adds it to the totals, with no locks,
+ * so the threads never wait for each other, and each one that has a core to itself adds its own rollouts.
+ *
+ * The search runs until a deadline, and the best candidate so far can be asked for at any time (see getBest), even from
+ * another thread while the search is running.
+ */
+public class MonteCarloSearch {
+
+    //How much each feature counts (see AutoPlayer).
+    final private double[] weights;
+    //The threads that play rollouts, or null to play them on the thread that searches.
+    final private ForkJoinPool pool;
+    //The number of game pieces to land after the next one in each rollout.
+    private int depth = 3;
+    //The seeds of the futures come from this.
+    final private SplittableRandom random;
+
+    //The search: the landed blocks and the number of columns, the current game piece and the next one, and the
+    //piece generator that the futures are forked from.
+    private int[] rowMasks;
+    private int columns;
+    private int type, nextType, nextOrientation, nextX, nextY;
+    private PieceGenerator generator;
+    private long seed;
+    //The candidate placements of the current game piece.
+    private int[] candidateX, candidateY, candidateOrientation;
+    private int count;
+
+    //The number of the next rollout, the total score of the rollouts of each candidate, and how many of them there
+    //have been.
+    private AtomicLong nextRollout = new AtomicLong();
+    private volatile DoubleAdder[] totals = new DoubleAdder[0];
+    private volatile AtomicIntegerArray rollouts = new AtomicIntegerArray(0);
+    //When the search has to stop, in the time of System.nanoTime, and whether it was told to stop sooner.
+    private long deadline;
+    private volatile boolean stopped = false;
+    //The number of searches made, and the rollouts played in all of them.
+    private long searches = 0, totalRollouts = 0;
+
+    /**
+     * Constructor.
+     * @param weights How much each feature counts, indexed by AutoPlayer.WEIGHT_HEIGHT and the others.
+     * @param pool The threads that play rollouts, or null to play them all on the thread that searches.
+     * @param seed The seed of the futures. Searches with the same seed try the same futures, in the same order.
+     */
+    public MonteCarloSearch(double[] weights, ForkJoinPool pool, long seed) {
+        this.weights = weights.clone();
+        this.pool = pool;
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Searches for the best of the candidate placements of the current game piece, until the deadline. Must be called
+     * on the thread that runs the game, and the game must not change until it returns.
+     * @param engine The game.
+     * @param candidateX The left most column of each candidate.
+     * @param candidateY The top most row of each candidate.
+     * @param candidateOrientation The orientation of each candidate.
+     * @param count The number of candidates. They should be in order from the best guess to the worst, since the first
+     *              one is chosen if there is no time to play any rollouts.
+     * @param deadline When to stop, in the time of System.nanoTime.
+     * @return The index of the best candidate.
+     */
+    public int search(GameEngine engine, int[] candidateX, int[] candidateY, int[] candidateOrientation, int count,
+                      long deadline) {
+        Board board = engine.getGameGrid().getBoard();
+        rowMasks = new int[board.getRows()];
+        board.copyCells(rowMasks, new byte[board.getRows()*board.getColumns()]);
+        columns = board.getColumns();
+        type = engine.getCurrentGamePiece().getType();
+        nextType = engine.getNextGamePiece().getType();
+        nextOrientation = engine.getNextGamePiece().getOrientation();
+        nextX = GamePiece.getSpawnX(nextType, nextOrientation, columns);
+        nextY = GamePiece.getSpawnY(nextType, nextOrientation);
+        //The game`s generator is only read here, so the rollouts never change the game pieces that the game gets.
+        generator = engine.getPieceGenerator().fork(random.nextLong());
+        seed = random.nextLong();
+
+        this.candidateX = candidateX;
+        this.candidateY = candidateY;
+        this.candidateOrientation = candidateOrientation;
+        this.count = count;
+        this.deadline = deadline;
+        stopped = false;
+        nextRollout.set(0);
+        DoubleAdder[] newTotals = new DoubleAdder[count];
+        for (int i = 0; i < count; i ++) {
+            newTotals[i] = new DoubleAdder();
+        }
+        rollouts = new AtomicIntegerArray(count);
+        totals = newTotals;
+
+        if (pool != null) {
+            pool.invoke(new SearchTask());
+        }
+        else {
+            new RolloutTask().playRollouts();
+        }
+        searches ++;
+        totalRollouts += getRollouts();
+        return getBest();
+    }
+
+    /**
+     * Starts one RolloutTask for each thread of the pool, so that every core plays rollouts until the deadline.
+     */
+    @SuppressWarnings("serial")
+    private class SearchTask extends RecursiveAction {
+        @Override
+        protected void compute() {
+            RolloutTask[] tasks = new RolloutTask[pool.getParallelism()];
+            for (int i = 0; i < tasks.length; i ++) {
+                tasks[i] = new RolloutTask();
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    /**
+     * Plays rollouts on one thread, until the deadline.
+     */
+    @SuppressWarnings("serial")
+    private class RolloutTask extends RecursiveAction {
+        @Override
+        protected void compute() {
+            playRollouts();
+        }
+
+        private void playRollouts() {
+            SearchWorkspace workspace = SearchWorkspace.get(columns, rowMasks.length);
+            while (stopped == false && System.nanoTime() < deadline) {
+                long rollout = nextRollout.getAndIncrement();
+                int candidate = (int) (rollout % count);
+                double score = playRollout(workspace, candidate, rollout/count);
+                totals[candidate].add(score);
+                rollouts.incrementAndGet(candidate);
+            }
+        }
+    }
+
+    /**
+     * Plays a single rollout.
+     * @param workspace The workspace of the current thread.
+     * @param candidate The placement of the current game piece.
+     * @param round The round, which chooses the future.
+     * @return The score at the end of the rollout.
+     */
+    private double playRollout(SearchWorkspace workspace, int candidate, long round) {
+        Board board = workspace.board;
+        board.setCells(rowMasks, workspace.colours);
+        int lines = AutoPlayer.place(board, type, candidateOrientation[candidate], candidateX[candidate],
+                candidateY[candidate]);
+        if (lines < 0) {
+            return AutoPlayer.LOSING_SCORE;
+        }
+
+        PieceGenerator future = generator.fork(seed ^ round*0x9E3779B97F4A7C15L);
+        int pieceType = nextType, pieceOrientation = nextOrientation;
+        int x = nextX, y = nextY;
+        for (int piece = 0; piece <= depth; piece ++) {
+            if (piece > 0) {
+                pieceType = future.nextType();
+                future.nextColour(pieceType);
+                pieceOrientation = future.nextOrientation(pieceType);
+                x = GamePiece.getSpawnX(pieceType, pieceOrientation, columns);
+                y = GamePiece.getSpawnY(pieceType, pieceOrientation);
+            }
+            int moreLines = landGreedily(workspace, pieceType, pieceOrientation, x, y);
+            if (moreLines < 0) {
+                return AutoPlayer.LOSING_SCORE;
+            }
+            lines += moreLines;
+        }
+        return weights[AutoPlayer.WEIGHT_LINES]*lines + AutoPlayer.evaluateCells(board, weights);
+    }
+
+    /**
+     * Lands a game piece on workspace.board in the place that scores best right away.
+     * @return The number of lines cleared, or -1 if every placement ends the game.
+     */
+    private int landGreedily(SearchWorkspace workspace, int pieceType, int orientation, int x, int y) {
+        Board board = workspace.board;
+        PlacementEnumerator placementEnumerator = workspace.placementEnumerator;
+        int placements = placementEnumerator.enumerate(board, pieceType, orientation, x, y);
+        board.copyCells(workspace.rowMasks, workspace.colours);
+
+        int best = -1;
+        double bestScore = 0;
+        for (int i = 0; i < placements; i ++) {
+            Board scratch = workspace.scratch;
+            scratch.setCells(workspace.rowMasks, workspace.colours);
+            int lines = AutoPlayer.place(scratch, pieceType, placementEnumerator.getOrientation(i),
+                    placementEnumerator.getX(i), placementEnumerator.getY(i));
+            if (lines < 0) {
+                continue;
+            }
+            double score = weights[AutoPlayer.WEIGHT_LINES]*lines + AutoPlayer.evaluateCells(scratch, weights);
+            if (best == -1 || score > bestScore) {
+                best = i;
+                bestScore = score;
+            }
+        }
+        if (best == -1) {
+            return -1;
+        }
+        return AutoPlayer.place(board, pieceType, placementEnumerator.getOrientation(best),
+                placementEnumerator.getX(best), placementEnumerator.getY(best));
+    }
+
+    /**
+     * Stops the search as soon as the rollouts being played are done, even if the deadline has not come.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Gets the candidate with the best average score so far. Can be called from any thread, at any time.
+     * @return The index of the candidate, or 0 if no rollouts have been played yet.
+     */
+    public int getBest() {
+        DoubleAdder[] currentTotals = totals;
+        AtomicIntegerArray currentRollouts = rollouts;
+        int best = 0;
+        double bestAverage = 0;
+        boolean found = false;
+        for (int i = 0; i < currentTotals.length && i < currentRollouts.length(); i ++) {
+            int played = currentRollouts.get(i);
+            if (played == 0) {
+                continue;
+            }
+            double average = currentTotals[i].sum()/played;
+            if (found == false || average > bestAverage) {
+                best = i;
+                bestAverage = average;
+                found = true;
+            }
+        }
+        return best;
+    }
+
+    /*  Getters and Setters */
+
+    /**
+     * Gets the number of rollouts played so far in the current search, or in the last one.
+     * @return The number of rollouts.
+     */
+    public long getRollouts() {
+        long played = 0;
+        AtomicIntegerArray currentRollouts = rollouts;
+        for (int i = 0; i < currentRollouts.length(); i ++) {
+            played += currentRollouts.get(i);
+        }
+        return played;
+    }
+
+    public long getSearches() {
+        return searches;
+    }
+
+    public long getTotalRollouts() {
+        return totalRollouts;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Sets how far each rollout looks ahead.
+     * @param depth The number of game pieces to land after the next one.
+     */
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+}
@@ -70,6 +70,14 @@ public class Overlay extends TextComponent{
         buttonManager.updateButtonStates(e);
     }
 
+    /**
+     * Sets where to report buttons that change how they look, so that they will be repainted.
+     * @param dirtyRegion The dirty region.
+     */
+    public void setDirtyRegion(DirtyRegion dirtyRegion) {
+        buttonManager.setDirtyRegion(dirtyRegion);
+    }
+
     /**
      * Draw the overlay.
      * @param g The graphics object.
@@ -0,0 +1,57 @@
+/**
+ * Chooses the game pieces that a game is played with: which shape comes next, which colour it is, and which
+ * orientation it starts in.
+ *
+ * Every choice comes from the generator, so two games that start with generators in the same state get exactly the
+ * same game pieces, in the same order. This is what lets a game be played again from a recording, or be simulated many
+ * times over with different (but known) streams of game pieces.
+ *
+ * Shapes are numbered the same way as in GamePiece (see GamePiece.TYPE_I and the others).
+ */
+public interface PieceGenerator {
+
+    /**
+     * Chooses the shape of the next game piece.
+     * @return The type of shape, from 0 to GamePiece.getTYPES() - 1.
+     */
+    int nextType();
+
+    /**
+     * Chooses the colour of a game piece. Called once for each game piece, after nextType().
+     * @param type The type of shape of the game piece.
+     * @return The palette index of the colour (see Block.getPaletteColour).
+     */
+    int nextColour(int type);
+
+    /**
+     * Chooses the orientation that a game piece starts in. Called once for each game piece, after nextColour().
+     * @param type The type of shape of the game piece.
+     * @return The orientation, from 0 to GamePiece.getORIENTATIONS() - 1.
+     */
+    int nextOrientation(int type);
+
+    /**
+     * Creates a new generator of the same kind and with the same settings, whose choices do not depend on this one`s.
+     * Each call gives a different generator, but the generators given are always the same for a generator that started
+     * with the same seed, so each of many games that run side by side can have its own repeatable stream.
+     * @return The new generator.
+     */
+    PieceGenerator split();
+
+    /**
+     * Creates a generator that carries on from where this one is (for example, with the same shapes left in the bag),
+     * but with its own random numbers, from the given seed. It gives a stream of game pieces that could come next,
+     * without giving away the ones that really will, so a player can try out many possible futures. This generator is
+     * not changed.
+     * @param seed The seed of the new generator.
+     * @return The new generator.
+     */
+    PieceGenerator fork(long seed);
+
+    /**
+     * Gets the seed that this generator started with. A generator of the same kind and with the same settings, created
+     * with this seed, makes the same choices.
+     * @return The seed.
+     */
+    long getSeed();
+}
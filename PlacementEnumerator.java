@@ -0,0 +1,265 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Finds every place where a game piece can land, starting from where it is now.
+ *
+ * Every state of the game piece (its column, row and orientation) that can be reached with the moves the player has
+ * (left, right, down and rotate, with the same rules as GamePiece) is visited once, in a breadth-first search. A state
+ * where the game piece can not move down any further is a placement. Since the search also moves sideways and rotates
+ * below the top of the board, placements that need a piece to be slid or turned under an overhang are found as well.
+ *
+ * To make this fast enough to run for every game piece, nothing is allocated while searching: the states that have
+ * been visited are kept in a bitset, and the board is checked a whole row at a time, using the row masks of the board
+ * and of each shape. An enumerator can be used over and over again, but only by one thread at a time; each search
+ * replaces the results of the one before it.
+ */
+public class PlacementEnumerator {
+
+    //The moves of the search. They are the same as the inputs of the game, so a path can be played by the engine.
+    final private static GameEngine.Input[] MOVES = {GameEngine.Input.LEFT, GameEngine.Input.RIGHT,
+            GameEngine.Input.DOWN, GameEngine.Input.ROTATE};
+
+    final private static int TYPES = GamePiece.getTYPES();
+    final private static int ORIENTATIONS = GamePiece.getORIENTATIONS();
+    final private static int SIZE = GamePiece.getSIZE();
+
+    //The mask of each row of each shape: bit c of SHAPE_ROWS[type][orientation][row] is set when the shape covers the
+    //cell in column c of that row.
+    final private static int[][][] SHAPE_ROWS = new int[TYPES][ORIENTATIONS][SIZE];
+    //The lowest orientation of each shape that covers exactly the same cells, so that the same placement is only
+    //given once (for example, every orientation of the O piece is the same).
+    final private static int[][] SAME_AS = new int[TYPES][ORIENTATIONS];
+
+    static {
+        for (int type = 0; type < TYPES; type ++) {
+            for (int orientation = 0; orientation < ORIENTATIONS; orientation ++) {
+                int[] shapeX = GamePiece.getShapeX(type, orientation);
+                int[] shapeY = GamePiece.getShapeY(type, orientation);
+                for (int i = 0; i < SIZE; i ++) {
+                    SHAPE_ROWS[type][orientation][shapeY[i]] |= 1 << shapeX[i];
+                }
+                SAME_AS[type][orientation] = orientation;
+                for (int other = 0; other < orientation; other ++) {
+                    if (Arrays.equals(SHAPE_ROWS[type][other], SHAPE_ROWS[type][orientation]) == true) {
+                        SAME_AS[type][orientation] = other;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    //The board being searched, and its size.
+    private Board board;
+    private int columns, rows;
+    //The type of shape being searched, and the top most row that the game piece can be in.
+    private int type;
+    private int minY;
+
+    //The states that have been visited, and the placements that have been found, one bit for each state.
+    private long[] visited = new long[0];
+    private long[] placed = new long[0];
+    //The states waiting to be searched, and, for each state, the state it was reached from and the move taken.
+    private int[] queue = new int[0];
+    private int[] parents = new int[0];
+    private byte[] parentMoves = new byte[0];
+
+    //The placements that were found, in the order they were found.
+    private int placementCount = 0;
+    private int[] placementStates = new int[0];
+
+    /**
+     * Finds every place where a game piece can land from where it is now.
+     * @param gamePiece The game piece. It is not moved.
+     * @return The number of placements.
+     */
+    public int enumerate(GamePiece gamePiece) {
+        return enumerate(gamePiece.getGrid().getBoard(), gamePiece.getType(), gamePiece.getOrientation(),
+                gamePiece.getPieceX(), gamePiece.getPieceY());
+    }
+
+    /**
+     * Finds every place where a game piece can land from the given state.
+     * @param board The board.
+     * @param type The type of shape.
+     * @param orientation The orientation that the game piece starts in.
+     * @param x The left most column of the game piece.
+     * @param y The top most row of the game piece. Can be above the top of the board.
+     * @return The number of placements. If the game piece does not fit where it starts, there are none.
+     */
+    public int enumerate(Board board, int type, int orientation, int x, int y) {
+        this.board = board;
+        this.type = type;
+        columns = board.getColumns();
+        rows = board.getRows();
+        //Moves never go up, and a rotation only moves up to keep the game piece inside of the bottom of the board.
+        minY = Math.min(y, rows - SIZE);
+        prepare((rows - minY)*columns*ORIENTATIONS);
+        placementCount = 0;
+
+        if (fits(orientation, x, y) == false) {
+            return 0;
+        }
+        int start = getState(x, y, orientation);
+        visit(start, -1, -1);
+        int head = 0, tail = 1;
+        queue[0] = start;
+
+        while (head < tail) {
+            int state = queue[head ++];
+            int stateOrientation = state % ORIENTATIONS;
+            int stateX = (state/ORIENTATIONS) % columns;
+            int stateY = state/ORIENTATIONS/columns + minY;
+
+            //Left and right.
+            if (fits(stateOrientation, stateX - 1, stateY) == true) {
+                tail = push(getState(stateX - 1, stateY, stateOrientation), state, 0, tail);
+            }
+            if (fits(stateOrientation, stateX + 1, stateY) == true) {
+                tail = push(getState(stateX + 1, stateY, stateOrientation), state, 1, tail);
+            }
+
+            //Down. If it can not move down, it has landed here.
+            if (fits(stateOrientation, stateX, stateY + 1) == true) {
+                tail = push(getState(stateX, stateY + 1, stateOrientation), state, 2, tail);
+            }
+            else {
+                addPlacement(stateX, stateY, stateOrientation, state);
+            }
+
+            //Rotate, the same way as GamePiece.rotate: the game piece moves down to line up with where it was, and is
+            //kept inside of the grid. If it then overlaps anything, it does not rotate.
+            int newOrientation = (stateOrientation + 1) % ORIENTATIONS;
+            int newX = Math.max(0, Math.min(columns - GamePiece.getShapeWidth(type, newOrientation), stateX));
+            int newY = Math.min(rows - GamePiece.getShapeHeight(type, newOrientation),
+                    stateY + SIZE - GamePiece.getShapeWidth(type, stateOrientation));
+            if (fits(newOrientation, newX, newY) == true) {
+                tail = push(getState(newX, newY, newOrientation), state, 3, tail);
+            }
+        }
+        return placementCount;
+    }
+
+    /**
+     * Makes sure that the arrays are big enough for the given number of states, and clears the bitsets.
+     * @param states The number of states.
+     */
+    private void prepare(int states) {
+        int words = (states + 63) >>> 6;
+        if (visited.length < words) {
+            visited = new long[words];
+            placed = new long[words];
+        }
+        else {
+            Arrays.fill(visited, 0, words, 0);
+            Arrays.fill(placed, 0, words, 0);
+        }
+        if (queue.length < states) {
+            queue = new int[states];
+            parents = new int[states];
+            parentMoves = new byte[states];
+            placementStates = new int[states];
+        }
+    }
+
+    /**
+     * Checks to see if the game piece fits in the given place: it is inside of the sides and the bottom of the board,
+     * and it does not overlap any filled cell. Rows above the top of the board are always empty.
+     * @param orientation The orientation.
+     * @param x The left most column of the game piece.
+     * @param y The top most row of the game piece.
+     * @return True for yes, false for no.
+     */
+    private boolean fits(int orientation, int x, int y) {
+        if (x < 0 || x + GamePiece.getShapeWidth(type, orientation) > columns
+                || y + GamePiece.getShapeHeight(type, orientation) > rows || y < minY) {
+            return false;
+        }
+        int[] shapeRows = SHAPE_ROWS[type][orientation];
+        for (int i = Math.max(0, -y); i < SIZE && shapeRows[i] != 0; i ++) {
+            if ((board.getRowMask(y + i) & (shapeRows[i] << x)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of a state, which is also its bit in the bitsets.
+     */
+    private int getState(int x, int y, int orientation) {
+        return ((y - minY)*columns + x)*ORIENTATIONS + orientation;
+    }
+
+    /**
+     * Adds a state to the queue, if it has not been visited yet.
+     * @return The new end of the queue.
+     */
+    private int push(int state, int parent, int move, int tail) {
+        if ((visited[state >>> 6] & (1L << state)) != 0) {
+            return tail;
+        }
+        visit(state, parent, move);
+        queue[tail] = state;
+        return tail + 1;
+    }
+
+    /**
+     * Marks a state as visited, and remembers how it was reached.
+     */
+    private void visit(int state, int parent, int move) {
+        visited[state >>> 6] |= 1L << state;
+        parents[state] = parent;
+        parentMoves[state] = (byte) move;
+    }
+
+    /**
+     * Adds a placement, unless the same cells have already been given by another orientation.
+     */
+    private void addPlacement(int x, int y, int orientation, int state) {
+        int same = getState(x, y, SAME_AS[type][orientation]);
+        if ((placed[same >>> 6] & (1L << same)) != 0) {
+            return;
+        }
+        placed[same >>> 6] |= 1L << same;
+        placementStates[placementCount ++] = state;
+    }
+
+    /*  Results */
+
+    public int getPlacementCount() {
+        return placementCount;
+    }
+
+    public int getX(int placement) {
+        return (placementStates[placement]/ORIENTATIONS) % columns;
+    }
+
+    public int getY(int placement) {
+        return placementStates[placement]/ORIENTATIONS/columns + minY;
+    }
+
+    public int getOrientation(int placement) {
+        return placementStates[placement] % ORIENTATIONS;
+    }
+
+    /**
+     * Gets the moves that take the game piece from where it started to a placement, by the shortest path.
+     * The last move that lands the game piece is not included.
+     * @param placement The index of the placement.
+     * @param moves Receives the moves, in order. It is emptied first.
+     */
+    public void getPath(int placement, ArrayList<GameEngine.Input> moves) {
+        moves.clear();
+        for (int state = placementStates[placement]; parents[state] != -1; state = parents[state]) {
+            moves.add(MOVES[parentMoves[state]]);
+        }
+        //They were found from the end back to the start.
+        for (int i = 0, j = moves.size() - 1; i < j; i ++, j --) {
+            GameEngine.Input move = moves.get(i);
+            moves.set(i, moves.get(j));
+            moves.set(j, move);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.SplittableRandom;
+
+/**
+ * The parts that every randomized PieceGenerator shares: a seeded SplittableRandom that all of the choices come from,
+ * and the choice of colour and starting orientation. Subclasses only decide how the next shape is chosen.
+ *
+ * By default, a game piece gets a random colour from the block palette and a random starting orientation, the same as
+ * the game has always done. Either can be fixed instead, so that each shape always has the same colour, or always
+ * starts lying flat.
+ */
+public abstract class RandomPieceGenerator implements PieceGenerator {
+
+    //The seed that the generator started with, and the random numbers that come from it.
+    final private long seed;
+    final protected SplittableRandom random;
+
+    //Whether each shape always has the same colour, and whether each shape always starts in the same orientation.
+    private boolean fixedColours = false;
+    private boolean fixedOrientations = false;
+
+    //The colour of each shape when colours are fixed, as palette indexes: I cyan, J blue, L orange, O yellow, S green,
+    //Z red and T pink.
+    final private static int[] SHAPE_COLOURS = {2, 0, 5, 4, 3, 1, 7};
+    //The orientation that each shape starts in when orientations are fixed: every shape lies flat, with its flat side
+    //down (see the diagrams in GamePiece.generateNewPiece).
+    final private static int[] SPAWN_ORIENTATIONS = {1, 3, 1, 0, 0, 0, 2};
+
+    /**
+     * Constructor.
+     * @param seed The seed. Generators of the same kind created with the same seed make the same choices.
+     */
+    protected RandomPieceGenerator(long seed) {
+        this.seed = seed;
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Creates a new generator of the same kind as this one, with no settings changed.
+     * @param seed The seed.
+     * @return The new generator.
+     */
+    protected abstract RandomPieceGenerator create(long seed);
+
+    /**
+     * Gets the name of the kind of generator, as given to create(String, long).
+     * @return The name.
+     */
+    public abstract String getName();
+
+    @Override
+    public int nextColour(int type) {
+        if (fixedColours == true) {
+            return SHAPE_COLOURS[type];
+        }
+        return random.nextInt(Block.getPaletteSize());
+    }
+
+    @Override
+    public int nextOrientation(int type) {
+        if (fixedOrientations == true) {
+            return SPAWN_ORIENTATIONS[type];
+        }
+        return random.nextInt(GamePiece.getORIENTATIONS());
+    }
+
+    @Override
+    public PieceGenerator split() {
+        //The new seed comes from this generator, so the same generator always splits off the same ones.
+        RandomPieceGenerator generator = create(random.nextLong());
+        generator.setFixedColours(fixedColours);
+        generator.setFixedOrientations(fixedOrientations);
+        return generator;
+    }
+
+    @Override
+    public PieceGenerator fork(long seed) {
+        RandomPieceGenerator generator = create(seed);
+        generator.setFixedColours(fixedColours);
+        generator.setFixedOrientations(fixedOrientations);
+        copyState(generator);
+        return generator;
+    }
+
+    /**
+     * Copies everything that the choice of the next shape depends on, other than the random numbers, into a generator
+     * of the same kind (see fork). Does nothing by default, for kinds that choose every shape the same way.
+     * @param generator The generator to copy into. Its random numbers must be used for anything still to be chosen
+     *                  at random, so that the choices of this one are not given away.
+     */
+    protected void copyState(RandomPieceGenerator generator) {
+        //Nothing to copy.
+    }
+
+    /**
+     * Creates a generator from its name, so that it can be chosen with a setting.
+     * @param name "uniform", "bag" or "history". Anything else gives a uniform generator.
+     * @param seed The seed.
+     * @return The generator.
+     */
+    public static RandomPieceGenerator create(String name, long seed) {
+        if ("bag".equals(name) == true) {
+            return new BagPieceGenerator(seed);
+        }
+        if ("history".equals(name) == true) {
+            return new HistoryPieceGenerator(seed);
+        }
+        return new UniformPieceGenerator(seed);
+    }
+
+    /*  Getters and Setters */
+
+    @Override
+    public long getSeed() {
+        return seed;
+    }
+
+    public boolean hasFixedColours() {
+        return fixedColours;
+    }
+
+    public void setFixedColours(boolean fixedColours) {
+        this.fixedColours = fixedColours;
+    }
+
+    public boolean hasFixedOrientations() {
+        return fixedOrientations;
+    }
+
+    public void setFixedOrientations(boolean fixedOrientations) {
+        this.fixedOrientations = fixedOrientations;
+    }
+}
@@ -0,0 +1,300 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A recorded game, read back from a file written by ReplayRecorder.
+ *
+ * The format is, in order:
+ * - The header: the magic number "TRPL", the version, which piece generator was used and its settings, its seed (8
+ *   bytes), and the size of the grid, the drop time and the auto shift settings (in milliseconds).
+ * - The events, one after another. Each one starts with a tag byte, which holds the kind of event in its top bits
+ *   and the input in its low bits. Then comes the number of steps since the event before it, and, for key presses and
+ *   releases, how far into the step it happened, in microseconds.
+ * - The end: the tag TAG_END, the number of steps since the last event, and then the final score, lines cleared,
+ *   game pieces placed, whether the game was over, and a checksum of the landed blocks (8 bytes).
+ * All numbers other than the seed and the checksum are written in as few bytes as they need (see
+ * ReplayRecorder.putVarint), so most events take 2 to 4 bytes, and a long game takes a few kilobytes.
+ *
+ * If the end is missing (for example, the game was closed without quitting), the events that were written are still
+ * read, but there is nothing to check the replay against.
+ */
+public class Replay {
+
+    //The start of every replay, and the version of the format.
+    final public static int MAGIC = 0x5452504C;
+    final public static byte VERSION = 1;
+
+    //The settings of the piece generator.
+    final public static int FLAG_FIXED_COLOURS = 1;
+    final public static int FLAG_FIXED_ORIENTATIONS = 2;
+
+    //The kinds of events, stored in the tag byte above the input.
+    final public static int KIND_PRESS = 0;
+    final public static int KIND_RELEASE = 1;
+    final public static int KIND_APPLY = 2;
+    final public static int KIND_RELEASE_ALL = 3;
+    final public static int KIND_SHIFT = 3;
+    final private static int INPUT_MASK = (1 << KIND_SHIFT) - 1;
+    //The tag that marks the end of the recording.
+    final public static byte TAG_END = (byte) 0xFF;
+
+    //The names of the piece generators, by the number stored for them.
+    final private static String[] GENERATOR_NAMES = {"uniform", "bag", "history"};
+
+    //The settings the game was played with.
+    private String generatorName;
+    private boolean fixedColours, fixedOrientations;
+    private long seed;
+    private int columns, rows;
+    private int dropTime, autoShiftDelay, autoRepeatRate, softDropRate;
+
+    //The events: the step each one happened in, its tag, and how far into the step it happened, in nanoseconds.
+    private int eventCount = 0;
+    private long[] eventSteps = new long[64];
+    private byte[] eventTags = new byte[64];
+    private long[] eventOffsets = new long[64];
+
+    //How the game ended, if the end was recorded.
+    private boolean complete = false;
+    private long endStep;
+    private int score, linesCleared, piecesPlaced;
+    private boolean gameOver;
+    private long checksum;
+
+    /**
+     * Reads a replay from a file.
+     * @param file The file.
+     * @return The replay.
+     * @throws IOException If the file can not be read, or is not a replay.
+     */
+    public static Replay read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() == true && channel.read(buffer) >= 0) {
+                //Keep reading until the whole file is in the buffer.
+            }
+            buffer.flip();
+            return read(buffer);
+        }
+    }
+
+    /**
+     * Reads a replay from a buffer.
+     * @param buffer The bytes of the replay, from its position to its limit.
+     * @return The replay.
+     * @throws IOException If it is not a replay.
+     */
+    public static Replay read(ByteBuffer buffer) throws IOException {
+        Replay replay = new Replay();
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a replay.");
+            }
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IOException("Unknown replay version " + version + ".");
+            }
+            int generatorId = buffer.get();
+            if (generatorId < 0 || generatorId >= GENERATOR_NAMES.length) {
+                throw new IOException("Unknown piece generator " + generatorId + ".");
+            }
+            replay.generatorName = GENERATOR_NAMES[generatorId];
+            int flags = buffer.get();
+            replay.fixedColours = (flags & FLAG_FIXED_COLOURS) != 0;
+            replay.fixedOrientations = (flags & FLAG_FIXED_ORIENTATIONS) != 0;
+            replay.seed = buffer.getLong();
+            replay.columns = (int) getVarint(buffer);
+            replay.rows = (int) getVarint(buffer);
+            replay.dropTime = (int) getVarint(buffer);
+            replay.autoShiftDelay = (int) getVarint(buffer);
+            replay.autoRepeatRate = (int) getVarint(buffer);
+            replay.softDropRate = (int) getVarint(buffer);
+        } catch (BufferUnderflowException exception) {
+            throw new IOException("The replay is too short.");
+        }
+
+        long step = 0;
+        try {
+            while (buffer.hasRemaining() == true) {
+                byte tag = buffer.get();
+                step += getVarint(buffer);
+                if (tag == TAG_END) {
+                    replay.endStep = step;
+                    replay.score = (int) getVarint(buffer);
+                    replay.linesCleared = (int) getVarint(buffer);
+                    replay.piecesPlaced = (int) getVarint(buffer);
+                    replay.gameOver = buffer.get() != 0;
+                    replay.checksum = buffer.getLong();
+                    replay.complete = true;
+                    break;
+                }
+                int kind = (tag & 0xFF) >>> KIND_SHIFT;
+                long offset = 0;
+                if (kind == KIND_PRESS || kind == KIND_RELEASE) {
+                    offset = getVarint(buffer)*GameEngine.INPUT_TIME_RESOLUTION;
+                }
+                replay.addEvent(step, tag, offset);
+            }
+        } catch (BufferUnderflowException exception) {
+            //The recording was cut off. Keep the events that were read whole.
+        }
+        if (replay.complete == false) {
+            replay.endStep = step;
+        }
+        return replay;
+    }
+
+    /**
+     * Reads a number written by ReplayRecorder.putVarint.
+     * @param buffer The buffer to read from.
+     * @return The number.
+     * @throws IOException If the number is too long.
+     */
+    private static long getVarint(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Bad number in the replay.");
+    }
+
+    /**
+     * Adds an event to the end of the list, making the list bigger if needed.
+     */
+    private void addEvent(long step, byte tag, long offset) {
+        if (eventCount == eventSteps.length) {
+            int newLength = eventSteps.length*2;
+            eventSteps = Arrays.copyOf(eventSteps, newLength);
+            eventTags = Arrays.copyOf(eventTags, newLength);
+            eventOffsets = Arrays.copyOf(eventOffsets, newLength);
+        }
+        eventSteps[eventCount] = step;
+        eventTags[eventCount] = tag;
+        eventOffsets[eventCount] = offset;
+        eventCount ++;
+    }
+
+    /**
+     * Gets the number stored for a piece generator.
+     * @param name The name of the piece generator (see RandomPieceGenerator.getName).
+     * @return The number.
+     */
+    public static int getGeneratorId(String name) {
+        for (int i = 0; i < GENERATOR_NAMES.length; i ++) {
+            if (GENERATOR_NAMES[i].equals(name) == true) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown piece generator " + name + ".");
+    }
+
+    /**
+     * Works out a checksum of all of the landed blocks on a board, and their colours (64 bit FNV-1a).
+     * @param board The board.
+     * @return The checksum.
+     */
+    public static long checksum(Board board) {
+        int[] rowMasks = new int[board.getRows()];
+        byte[] colours = new byte[board.getRows()*board.getColumns()];
+        board.copyCells(rowMasks, colours);
+        long hash = 0xcbf29ce484222325L;
+        for (int rowMask : rowMasks) {
+            hash = (hash ^ rowMask)*0x100000001b3L;
+        }
+        for (byte colour : colours) {
+            hash = (hash ^ colour)*0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Creates a piece generator in the same state as the one the game started with.
+     * @return The piece generator.
+     */
+    public RandomPieceGenerator createPieceGenerator() {
+        RandomPieceGenerator generator = RandomPieceGenerator.create(generatorName, seed);
+        generator.setFixedColours(fixedColours);
+        generator.setFixedOrientations(fixedOrientations);
+        return generator;
+    }
+
+    /**
+     * Creates a game in the same state as the recorded game was at its start.
+     * @return The game.
+     */
+    public GameEngine createEngine() {
+        GameEngine engine = new GameEngine(columns, rows, createPieceGenerator());
+        engine.setDropTime(dropTime);
+        engine.setAutoShift(autoShiftDelay, autoRepeatRate, softDropRate);
+        return engine;
+    }
+
+    /**
+     * Applies an event to a game.
+     * @param index The index of the event.
+     * @param engine The game, at the start of the step that the event happened in.
+     */
+    public void applyEvent(int index, GameEngine engine) {
+        int kind = (eventTags[index] & 0xFF) >>> KIND_SHIFT;
+        if (kind == KIND_RELEASE_ALL) {
+            engine.releaseAll();
+            return;
+        }
+        GameEngine.Input input = GameEngine.Input.values()[eventTags[index] & INPUT_MASK];
+        if (kind == KIND_PRESS) {
+            engine.press(input, engine.getTime() + eventOffsets[index]);
+        }
+        else if (kind == KIND_RELEASE) {
+            engine.release(input, engine.getTime() + eventOffsets[index]);
+        }
+        else {
+            engine.apply(input);
+        }
+    }
+
+    /**
+     * Checks to see if a game ended the same way as the recorded game did.
+     * @param engine The game, played to the end of the replay.
+     * @return True for yes, false if not, or if the end of the replay was not recorded.
+     */
+    public boolean matches(GameEngine engine) {
+        return complete == true && engine.getTime()/GameEngine.STEP_TIME == endStep && engine.getScore() == score
+                && engine.getLinesCleared() == linesCleared && engine.getPiecesPlaced() == piecesPlaced
+                && engine.isGameOver() == gameOver && checksum(engine.getGameGrid().getBoard()) == checksum;
+    }
+
+    /*  Getters */
+
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    public long getEventStep(int index) {
+        return eventSteps[index];
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public long getEndStep() {
+        return endStep;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,199 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+/**
+ * Plays a recorded game again, without drawing it and as fast as the CPU allows.
+ *
+ * The game can be played one step at a time, played to the end, or moved to any step with seek(). As the game is
+ * played, a keyframe of the whole game is saved every KEYFRAME_INTERVAL steps, so that going back (or forward to a
+ * part already played) only needs to play the steps from the closest keyframe before it, instead of from the start.
+ *
+ * Usage: java ReplayPlayer file-or-folder...
+ * Checks that every replay given (or every .replay file in each folder given) plays out the same as it was recorded.
+ */
+public class ReplayPlayer {
+
+    //The number of steps between keyframes (10 seconds of game time).
+    final private static int KEYFRAME_INTERVAL = 600;
+
+    //The replay, and the game that plays it.
+    private Replay replay;
+    private GameEngine engine;
+    //The next event to be applied.
+    private int nextEvent = 0;
+
+    //The keyframes saved so far: keyframe k is from the start of step k*KEYFRAME_INTERVAL, and keyframeEvents[k] is
+    //the next event to be applied at that point.
+    private ArrayList<GameEngine.Keyframe> keyframes = new ArrayList<>();
+    private ArrayList<Integer> keyframeEvents = new ArrayList<>();
+
+    /**
+     * Constructor. Starts the game at its first step.
+     * @param replay The replay.
+     */
+    public ReplayPlayer(Replay replay) {
+        this.replay = replay;
+        engine = replay.createEngine();
+    }
+
+    /**
+     * Plays a single step: the events from the current step are applied, and then the game moves forward by one step.
+     * @return True if it played a step, false if the end of the replay was already reached.
+     */
+    public boolean step() {
+        long step = getStep();
+        if (step % KEYFRAME_INTERVAL == 0 && keyframes.size() == step/KEYFRAME_INTERVAL) {
+            keyframes.add(engine.createKeyframe());
+            keyframeEvents.add(nextEvent);
+        }
+
+        while (nextEvent < replay.getEventCount() && replay.getEventStep(nextEvent) == step) {
+            replay.applyEvent(nextEvent, engine);
+            nextEvent ++;
+        }
+        if (step >= replay.getEndStep()) {
+            return false;
+        }
+        engine.step();
+        return true;
+    }
+
+    /**
+     * Plays the rest of the replay.
+     */
+    public void playToEnd() {
+        while (step() == true) {
+            //Keep going.
+        }
+    }
+
+    /**
+     * Moves the game to the start of a step, as it was when it was recorded.
+     * @param target The step. It is kept between 0 and the last step of the replay.
+     */
+    public void seek(long target) {
+        target = Math.max(0, Math.min(replay.getEndStep(), target));
+        long step = getStep();
+
+        //Start from the closest keyframe before the target, unless the game is already closer.
+        int keyframe = (int) Math.min(target/KEYFRAME_INTERVAL, keyframes.size() - 1);
+        if (keyframe >= 0 && (target < step || (long) keyframe*KEYFRAME_INTERVAL > step)) {
+            restore(keyframe);
+        }
+        else if (target < step) {
+            //No keyframes yet, so start from the start.
+            engine = replay.createEngine();
+            nextEvent = 0;
+        }
+
+        while (getStep() < target) {
+            step();
+        }
+    }
+
+    /**
+     * Puts the game back to a keyframe.
+     * @param index The index of the keyframe.
+     */
+    private void restore(int index) {
+        GameEngine.Keyframe keyframe = keyframes.get(index);
+
+        //The piece generator has to be put back to the same point as well. Since it is only ever used to choose game
+        //pieces, that means choosing the same number of game pieces again, from the same seed.
+        PieceGenerator generator = replay.createPieceGenerator();
+        for (int i = 0; i < keyframe.getPiecesGenerated(); i ++) {
+            int type = generator.nextType();
+            generator.nextColour(type);
+            generator.nextOrientation(type);
+        }
+        engine.setPieceGenerator(generator);
+        engine.restore(keyframe);
+        nextEvent = keyframeEvents.get(index);
+    }
+
+    /**
+     * Plays the whole replay from the start, and checks that it ends the same way as it was recorded.
+     * @return True if it does, false if not, or if the end of the replay was not recorded.
+     */
+    public boolean verify() {
+        seek(0);
+        playToEnd();
+        return replay.matches(engine);
+    }
+
+    /*  Getters */
+
+    /**
+     * Gets the step that the game is at.
+     * @return The step.
+     */
+    public long getStep() {
+        return engine.getTime()/GameEngine.STEP_TIME;
+    }
+
+    /**
+     * Gets the game. It must not be changed, apart from through this player.
+     * @return The game.
+     */
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    public Replay getReplay() {
+        return replay;
+    }
+
+    public static void main(String[] args) {
+        ArrayList<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            Path path = Paths.get(arg);
+            if (Files.isDirectory(path) == true) {
+                try (DirectoryStream<Path> directory = Files.newDirectoryStream(path, "*.replay")) {
+                    for (Path file : directory) {
+                        files.add(file);
+                    }
+                } catch (IOException exception) {
+                    System.err.println("Could not read " + path + ": " + exception.getMessage());
+                }
+            }
+            else {
+                files.add(path);
+            }
+        }
+
+        int passed = 0, failed = 0, incomplete = 0;
+        long steps = 0;
+        long startTime = System.nanoTime();
+        for (Path file : files) {
+            try {
+                Replay replay = Replay.read(file);
+                if (replay.isComplete() == false) {
+                    incomplete ++;
+                    System.out.println("INCOMPLETE " + file);
+                    continue;
+                }
+                if (new ReplayPlayer(replay).verify() == true) {
+                    passed ++;
+                }
+                else {
+                    failed ++;
+                    System.out.println("FAILED " + file);
+                }
+                steps += replay.getEndStep();
+            } catch (IOException exception) {
+                failed ++;
+                System.out.println("FAILED " + file + ": " + exception.getMessage());
+            }
+        }
+        double seconds = (System.nanoTime() - startTime)/1e9;
+        System.out.printf("%d passed, %d failed, %d incomplete, %d steps in %.2f s%n", passed, failed, incomplete, steps,
+                seconds);
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+}
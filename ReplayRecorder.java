@@ -0,0 +1,208 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records a game as it is played, so that it can be played again later (see Replay and ReplayPlayer).
+ *
+ * Since the game is fully decided by its piece generator and its inputs, only those are recorded: the settings and the
+ * seed at the start, then every input with the step it happened in and where in the step it happened, and at the end
+ * the final score and a checksum of the landed blocks, so that playing it again can be checked. The format is
+ * described in Replay.
+ *
+ * Everything is written into a buffer first, and the buffer is only written to the channel when it is full or when
+ * the recording is finished, so recording costs the game almost nothing. It must only be used from the thread that
+ * runs the game. If writing fails, the recording stops, but the game carries on.
+ */
+public class ReplayRecorder {
+
+    //The size of the buffer, in bytes. A whole game usually fits in it.
+    final private static int BUFFER_SIZE = 16384;
+    //The most bytes a single event can take up: a tag, and two numbers.
+    final private static int MAX_EVENT_SIZE = 1 + 10 + 10;
+
+    //Where the recording is written, or null once it is finished or has failed.
+    private WritableByteChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    //The step of the last event, since each event only stores how many steps came after the one before it.
+    private long lastStep = 0;
+
+    /**
+     * Constructor.
+     * @param channel Where to write the recording. It is closed when the recording is finished.
+     */
+    public ReplayRecorder(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Creates a recorder that writes to a file. If the file already exists, it is replaced.
+     * @param file The file.
+     * @return The recorder.
+     * @throws IOException If the file can not be opened.
+     */
+    public static ReplayRecorder create(Path file) throws IOException {
+        return new ReplayRecorder(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /**
+     * Writes the start of the recording: the settings of the game, and how its game pieces are chosen.
+     * Called by GameEngine.setRecorder.
+     * @param engine The game, before its first step.
+     */
+    public void start(GameEngine engine) {
+        if (engine.getPieceGenerator() instanceof RandomPieceGenerator == false) {
+            throw new IllegalArgumentException("Only games with a RandomPieceGenerator can be recorded.");
+        }
+        RandomPieceGenerator generator = (RandomPieceGenerator) engine.getPieceGenerator();
+        Board board = engine.getGameGrid().getBoard();
+
+        buffer.putInt(Replay.MAGIC);
+        buffer.put(Replay.VERSION);
+        buffer.put((byte) Replay.getGeneratorId(generator.getName()));
+        buffer.put((byte) ((generator.hasFixedColours() == true ? Replay.FLAG_FIXED_COLOURS : 0)
+                | (generator.hasFixedOrientations() == true ? Replay.FLAG_FIXED_ORIENTATIONS : 0)));
+        buffer.putLong(generator.getSeed());
+        putVarint(board.getColumns());
+        putVarint(board.getRows());
+        putVarint(engine.getDropTime()/1000000L);
+        putVarint(engine.getAutoShiftDelay()/1000000L);
+        putVarint(engine.getAutoRepeatRate()/1000000L);
+        putVarint(engine.getSoftDropRate()/1000000L);
+    }
+
+    /**
+     * Records a key press.
+     * @param step The step it happened in.
+     * @param input The input.
+     * @param offset How far into the step it happened, in nanoseconds.
+     */
+    public void recordPress(long step, GameEngine.Input input, long offset) {
+        putEvent(step, Replay.KIND_PRESS, input, offset);
+    }
+
+    /**
+     * Records a key release.
+     * @param step The step it happened in.
+     * @param input The input.
+     * @param offset How far into the step it happened, in nanoseconds.
+     */
+    public void recordRelease(long step, GameEngine.Input input, long offset) {
+        putEvent(step, Replay.KIND_RELEASE, input, offset);
+    }
+
+    /**
+     * Records an input that was applied once (see GameEngine.apply).
+     * @param step The step it happened in.
+     * @param input The input.
+     */
+    public void recordApply(long step, GameEngine.Input input) {
+        putEvent(step, Replay.KIND_APPLY, input, -1);
+    }
+
+    /**
+     * Records that all of the keys were released at once (see GameEngine.releaseAll).
+     * @param step The step it happened in.
+     */
+    public void recordReleaseAll(long step) {
+        putEvent(step, Replay.KIND_RELEASE_ALL, null, -1);
+    }
+
+    /**
+     * Writes a single event.
+     * @param step The step it happened in.
+     * @param kind The kind of event.
+     * @param input The input, or null if there is none.
+     * @param offset How far into the step it happened, in nanoseconds, or -1 if it does not matter.
+     */
+    private void putEvent(long step, int kind, GameEngine.Input input, long offset) {
+        if (channel == null) {
+            return;
+        }
+        if (buffer.remaining() < MAX_EVENT_SIZE) {
+            flush();
+        }
+        buffer.put((byte) (kind << Replay.KIND_SHIFT | (input == null ? 0 : input.ordinal())));
+        putVarint(step - lastStep);
+        lastStep = step;
+        if (offset >= 0) {
+            putVarint(offset/GameEngine.INPUT_TIME_RESOLUTION);
+        }
+    }
+
+    /**
+     * Writes the end of the recording, and closes the channel. Nothing more is recorded after this.
+     * @param engine The game, as it is when the recording ends.
+     */
+    public void finish(GameEngine engine) {
+        if (channel == null) {
+            return;
+        }
+        if (buffer.remaining() < MAX_EVENT_SIZE + 4*10 + 8) {
+            flush();
+        }
+        buffer.put(Replay.TAG_END);
+        putVarint(engine.getTime()/GameEngine.STEP_TIME - lastStep);
+        putVarint(engine.getScore());
+        putVarint(engine.getLinesCleared());
+        putVarint(engine.getPiecesPlaced());
+        buffer.put((byte) (engine.isGameOver() == true ? 1 : 0));
+        buffer.putLong(Replay.checksum(engine.getGameGrid().getBoard()));
+        flush();
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException exception) {
+            System.err.println("Could not finish the replay: " + exception.getMessage());
+        }
+        channel = null;
+    }
+
+    /**
+     * Writes a number in as few bytes as it needs: 7 bits at a time, lowest first, with the top bit of each byte set
+     * if more bytes follow. Numbers under 128 take a single byte.
+     * @param value The number. Must not be negative.
+     */
+    private void putVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Writes everything in the buffer to the channel, and empties the buffer.
+     */
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining() == true) {
+                channel.write(buffer);
+            }
+        } catch (IOException exception) {
+            System.err.println("Could not write the replay: " + exception.getMessage());
+            try {
+                channel.close();
+            } catch (IOException closeException) {
+                //Nothing more can be done.
+            }
+            channel = null;
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Checks to see if the recording is still going.
+     * @return True for yes, false if it was finished or writing it failed.
+     */
+    public boolean isRecording() {
+        return channel != null;
+    }
+}
@@ -0,0 +1,97 @@
+import java.awt.*;
+
+/**
+ * A text box that shows a label followed by a number, such as "Score: 12".
+ * The label and each of the ten digits are laid out once (see TextLabel). Changing the number only stores it; when it
+ * is drawn, its digits are drawn one after the other from the laid out digits, so no strings are built at all.
+ */
+public class ScoreBox extends TextBox {
+
+    //The label in front of the number.
+    private TextLabel label;
+    //The laid out digits, from 0 to 9.
+    private TextLabel[] digits = new TextLabel[10];
+    //The number.
+    private int value = 0;
+
+    //The digits of the number, from last to first. Large enough for any int.
+    private int[] digitBuffer = new int[10];
+
+    /**
+     * Constructor.
+     * @param x The left edge.
+     * @param y The top edge.
+     * @param w The width.
+     * @param h The height.
+     * @param label The text to show in front of the number.
+     */
+    public ScoreBox(int x, int y, int w, int h, String label) {
+        super(x,y,w,h,label);
+        this.label = new TextLabel(label, getTextFont());
+        for (int i = 0; i < digits.length; i ++) {
+            digits[i] = new TextLabel(String.valueOf(i), getTextFont());
+        }
+    }
+
+    @Override
+    public void draw(Graphics g) {
+        drawBackground(g);
+
+        g.setColor(getTextColour());
+        int drawX = getX() + getSideMargins();
+        int drawY = getY() + getTopMargins();
+
+        //Draw the label, and then the number right after it.
+        label.draw(g, drawX, drawY);
+        drawX += label.getWidth(g);
+
+        //Split the number into digits, last digit first.
+        int remaining = Math.abs(value);
+        int digitCount = 0;
+        do {
+            digitBuffer[digitCount] = remaining%10;
+            remaining /= 10;
+            digitCount ++;
+        } while (remaining > 0);
+
+        //Draw them first digit first.
+        for (int i = digitCount - 1; i >= 0; i --) {
+            TextLabel digit = digits[digitBuffer[i]];
+            digit.draw(g, drawX, drawY);
+            drawX += digit.getWidth(g);
+        }
+    }
+
+    /*  Getters and Setters */
+
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * Sets the number to show. Negative numbers are shown without their sign.
+     * @param value The number.
+     */
+    public void setValue(int value) {
+        this.value = value;
+    }
+
+    @Override
+    public void setText(String text) {
+        super.setText(text);
+        if (label != null) {
+            label.setText(text);
+        }
+    }
+
+    @Override
+    public void setTextFont(Font font) {
+        super.setTextFont(font);
+        if (label != null) {
+            label.setFont(font);
+            for (TextLabel digit : digits) {
+                digit.setFont(font);
+            }
+        }
+    }
+}
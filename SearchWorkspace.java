@@ -0,0 +1,39 @@
+/**
+ * The boards and the placement enumerator that one thread uses while the computer player looks ahead, both to score
+ * placements (see AutoPlayer) and to play rollouts (see MonteCarloSearch). Every thread has its own, so looking ahead
+ * never allocates anything, and many threads can do it at once.
+ */
+class SearchWorkspace {
+
+    //The workspace of each thread.
+    private static ThreadLocal<SearchWorkspace> workspaces = new ThreadLocal<>();
+
+    //The board that game pieces are landed on, and a board to try out the placements of a game piece on after that.
+    final Board board, scratch;
+    final PlacementEnumerator placementEnumerator = new PlacementEnumerator();
+    //The cells of a board, to copy from one board to another. The colours do not matter when looking ahead.
+    final int[] rowMasks;
+    final byte[] colours;
+
+    private SearchWorkspace(int columns, int rows) {
+        board = new Board(columns, rows);
+        scratch = new Board(columns, rows);
+        rowMasks = new int[rows];
+        colours = new byte[rows*columns];
+    }
+
+    /**
+     * Gets the workspace of the current thread, making a new one if it has none for a board of this size.
+     * @param columns The number of columns of the board.
+     * @param rows The number of rows of the board.
+     * @return The workspace.
+     */
+    static SearchWorkspace get(int columns, int rows) {
+        SearchWorkspace workspace = workspaces.get();
+        if (workspace == null || workspace.board.getColumns() != columns || workspace.board.getRows() != rows) {
+            workspace = new SearchWorkspace(columns, rows);
+            workspaces.set(workspace);
+        }
+        return workspace;
+    }
+}
@@ -1,5 +1,4 @@
 import java.awt.*;
-import java.util.ArrayList;
 
 /**
  * This class displays text on the screen in a text area. The text will
@@ -28,7 +27,7 @@ public class TextBox extends TextComponent {
     private int lineSpacing;
 
     //The lines of text that need to be drawn.
-    private String[] lines;
+    private TextLayoutCache.Layout layout;
 
     //Whether or not to calculate how to draw the text. It is inefficient to
     //recalculate how to redraw it every time before we draw.
@@ -69,7 +68,7 @@ public class TextBox extends TextComponent {
      * Draw the background of the text area.
      * @param g The graphics object.
      */
-    private void drawBackground(Graphics g) {
+    protected void drawBackground(Graphics g) {
         g.setColor(backgroundColour);
         g.fillRoundRect(getX(),getY(),getW(),getH(),getCornerSize(),getCornerSize());
     }
@@ -83,7 +82,8 @@ public class TextBox extends TextComponent {
         //Only recalculate how to draw text if it is needed.
         if (recalculateTextFormat == true) {
             //Separate the text into lines that each fit horizontally in the text area.
-            lines = getLines(getText(), g);
+            //If any text box has already done this for the same text, font and width, the result is reused.
+            layout = TextLayoutCache.getLayout(getText(), getTextFont(), getW()-(sideMargins*2), g);
             //No need to recalculate next time.
             recalculateTextFormat = false;
         }
@@ -93,116 +93,29 @@ public class TextBox extends TextComponent {
         //Attempt to draw text in the center of the text area.
         if (getTextAlignment() == TEXT_ALIGN_CENTER) {
 
-            //Get information on rendering text on screen.
-            FontMetrics fontMetrics = g.getFontMetrics(getTextFont());
-
             //Loop through each line.
-            for (int i = 0; i < lines.length; i ++) {
+            for (int i = 0; i < layout.getLineCount(); i ++) {
                 //Calculate where to draw the text and than draw it.
-                int stringWidth = fontMetrics.stringWidth(lines[i]);
                 //Amount of space that needs to be added to center the text.
-                int adjustment = (getW()-(sideMargins*2)-stringWidth)/2;
+                int adjustment = (getW()-(sideMargins*2)-layout.getLineWidth(i))/2;
                 int drawX = getX() + sideMargins + adjustment;
                 int drawY = getY() + topMargins + (lineSpacing*i);
-                g.drawString(lines[i] + " ",drawX,drawY);
+                layout.drawLine(g,i,drawX,drawY);
             }
         }
         //Else, assume that text needs to be aligned to the left side of the text area.
         else {
             //Loop through each line.
-            for (int i = 0; i < lines.length; i ++) {
+            for (int i = 0; i < layout.getLineCount(); i ++) {
 
                 //Calculate where to draw the text and than draw it.
                 int drawX = getX() + sideMargins;
                 int drawY = getY() + topMargins + (lineSpacing*i);
-                g.drawString(lines[i] + " ",drawX,drawY);
+                layout.drawLine(g,i,drawX,drawY);
             }
         }
     }
 
-    /**
-     * Separate the text into multiple lines such that each line
-     * does not exceed the size of the text area horizontally.
-     *
-     * This was one hell of a nightmare to debug!!!
-     *
-     * @param text The text.
-     * @param g The graphics object.
-     * @return The lines, stored in an array.
-     */
-    private String[] getLines(String text, Graphics g) {
-
-        ArrayList<String> lines = new ArrayList<>(0);
-
-        //Get each word in the text.
-        //Do so by splitting each word around a space, which is the delimiter.
-        String[] words = text.split(" ");
-
-        //The maximum allowed width of each line of text.
-        int maxWidth = getW()-(sideMargins*2);
-
-        //Loop until the last word is added to a line.
-        int index = 0;
-        String currentLine = "";
-        while (index < words.length) {
-
-            //Get information on rendering text on screen.
-            FontMetrics fontMetrics = g.getFontMetrics(getTextFont());
-            //Get the next word and add it to a temporary string.
-            String tempLine = currentLine;
-            tempLine += words[index];
-
-            //Consider space after each word too, if such word exists.
-            if (index + 1 < words.length) {
-                tempLine += " ";
-            }
-
-            //Get the width of the temporary string.
-            int textWidth = fontMetrics.stringWidth(tempLine);
-
-//            //TEST
-//            System.out.println(textWidth + "");
-//            System.out.println(tempLine);
-
-            //The additional word makes the line exceed the max allowed width.
-            if (textWidth > maxWidth) {
-
-                //Special case: a single 'word' is too long to fit alone on one line.
-                if (currentLine == "") {
-                    //Just add the word to this line, and ignore the fact that it is too long to fit.
-                    lines.add(tempLine);
-                    index ++;
-                }
-                //Else, the new added word just makes the size go over the limit.
-                else {
-                    //Therefore, this line is now 'maxed out': no more words can be added.
-                    //Add this line to the list; it is now complete.
-                    lines.add(currentLine);
-                    //Move on to the next line; it will start off empty.
-                    currentLine = "";
-                }
-
-            }
-            //Else, more words can potentially be added without going over the limit.
-            else {
-                //Add the new word to the current line.
-                currentLine = tempLine;
-                index++;
-
-                //There are no more words available to be added. This last line is complete.
-                if (index == words.length) {
-                    lines.add(currentLine);
-                }
-            }
-        }
-
-        System.out.println(lines.size()+"");
-
-        //Return result as an array of strings.
-        return lines.toArray(new String[lines.size()]);
-    }
-
-
     /*  Setters: Only contains overriden methods from parent class and some methods that are unique to this class. */
 
     @Override
@@ -233,12 +146,22 @@ public class TextBox extends TextComponent {
         recalculateTextFormat = true;
     }
 
+    public int getSideMargins() {
+        return sideMargins;
+    }
+
+    public int getTopMargins() {
+        return topMargins;
+    }
+
     public void setBackgroundColour(Color backgroundColour) {
         this.backgroundColour = backgroundColour;
     }
 
     public void setSideMargins(int sideMargins) {
         this.sideMargins = sideMargins;
+        //The width available for the text has changed, so need to reformat text.
+        recalculateTextFormat = true;
     }
 
     public void setTopMargins(int topMargins) {
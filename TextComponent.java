@@ -168,4 +168,8 @@ public abstract class TextComponent {
     public void setClickable(boolean clickable) {
         this.clickable = clickable;
     }
+
+    public void setMouseOver(boolean mouseOver) {
+        this.mouseOver = mouseOver;
+    }
 }
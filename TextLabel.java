@@ -0,0 +1,106 @@
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+
+/**
+ * A single line of text that remembers how it is laid out. Turning text into the shapes of its letters ('glyphs') is
+ * done once, and stored in a GlyphVector; after that, the text is drawn straight from the GlyphVector, without
+ * measuring or converting it again. It is only laid out again when the text, the font, or the way that the graphics
+ * object draws text changes.
+ */
+public class TextLabel {
+
+    //The text and its font.
+    private String text;
+    private Font font;
+
+    //The laid out text, how the graphics object drew text when it was laid out, and how wide it is.
+    private GlyphVector glyphVector = null;
+    private FontRenderContext fontRenderContext = null;
+    private int width;
+
+    /**
+     * Constructor.
+     * @param text The text.
+     * @param font The font.
+     */
+    public TextLabel(String text, Font font) {
+        this.text = text;
+        this.font = font;
+    }
+
+    /**
+     * Draws the text.
+     * @param g The graphics object.
+     * @param x The left edge of the text.
+     * @param y The baseline of the text.
+     */
+    public void draw(Graphics g, int x, int y) {
+        if (g instanceof Graphics2D) {
+            update(g);
+            ((Graphics2D) g).drawGlyphVector(glyphVector, x, y);
+        }
+        else {
+            g.setFont(font);
+            g.drawString(text, x, y);
+        }
+    }
+
+    /**
+     * Gets how wide the text is when drawn.
+     * @param g The graphics object that the text will be drawn with.
+     * @return The width, in pixels.
+     */
+    public int getWidth(Graphics g) {
+        if (g instanceof Graphics2D) {
+            update(g);
+            return width;
+        }
+        return g.getFontMetrics(font).stringWidth(text);
+    }
+
+    /**
+     * Lays out the text again, if anything that it depends on has changed.
+     * @param g The graphics object that the text will be drawn with.
+     */
+    private void update(Graphics g) {
+        FontRenderContext currentFontRenderContext = ((Graphics2D) g).getFontRenderContext();
+        if (glyphVector == null || currentFontRenderContext.equals(fontRenderContext) == false) {
+            fontRenderContext = currentFontRenderContext;
+            glyphVector = font.createGlyphVector(fontRenderContext, text);
+            width = (int) (glyphVector.getLogicalBounds().getWidth() + 0.5);
+        }
+    }
+
+    /*  Getters and Setters */
+
+    public String getText() {
+        return text;
+    }
+
+    public Font getFont() {
+        return font;
+    }
+
+    /**
+     * Sets the text. It is only laid out again if it is different.
+     * @param text The text.
+     */
+    public void setText(String text) {
+        if (text.equals(this.text) == false) {
+            this.text = text;
+            glyphVector = null;
+        }
+    }
+
+    /**
+     * Sets the font. The text is only laid out again if it is different.
+     * @param font The font.
+     */
+    public void setFont(Font font) {
+        if (font.equals(this.font) == false) {
+            this.font = font;
+            glyphVector = null;
+        }
+    }
+}
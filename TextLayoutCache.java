@@ -0,0 +1,211 @@
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Works out how to split text into lines that fit inside of a given width, and remembers the result.
+ * All text boxes share the same cache, so a text box that shows the same text, in the same font and at the same width
+ * as one that has been drawn before (for example, when going back to a screen that was already shown) does not need
+ * to do any of the work again.
+ *
+ * Only the most recently used layouts are kept, so that the cache can not grow forever.
+ * Like the rest of the drawing code, this class should only be used from the thread that draws.
+ */
+public class TextLayoutCache {
+
+    //The most layouts that are kept.
+    final private static int MAX_ENTRIES = 64;
+
+    //The layouts, from least to most recently used.
+    private static LinkedHashMap<Key, Layout> layouts = new LinkedHashMap<Key, Layout>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Layout> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Text that has been split into lines, with each line laid out into glyphs ready to be drawn.
+     */
+    public static class Layout {
+        //The lines, the width of each one in pixels, and the glyphs of each one.
+        final private String[] lines;
+        final private int[] lineWidths;
+        final private GlyphVector[] glyphVectors;
+
+        private Layout(String[] lines, int[] lineWidths, GlyphVector[] glyphVectors) {
+            this.lines = lines;
+            this.lineWidths = lineWidths;
+            this.glyphVectors = glyphVectors;
+        }
+
+        /**
+         * Draws a line.
+         * @param g The graphics object.
+         * @param index The index of the line.
+         * @param x The left edge of the line.
+         * @param y The baseline of the line.
+         */
+        public void drawLine(Graphics g, int index, int x, int y) {
+            if (g instanceof Graphics2D) {
+                ((Graphics2D) g).drawGlyphVector(glyphVectors[index], x, y);
+            }
+            else {
+                g.drawString(lines[index], x, y);
+            }
+        }
+
+        public int getLineCount() {
+            return lines.length;
+        }
+
+        public String getLine(int index) {
+            return lines[index];
+        }
+
+        public int getLineWidth(int index) {
+            return lineWidths[index];
+        }
+    }
+
+    /**
+     * What a layout depends on: the text, the font, the width available, and how the graphics object measures text.
+     */
+    private static class Key {
+        final private String text;
+        final private Font font;
+        final private int maxWidth;
+        final private FontRenderContext fontRenderContext;
+
+        private Key(String text, Font font, int maxWidth, FontRenderContext fontRenderContext) {
+            this.text = text;
+            this.font = font;
+            this.maxWidth = maxWidth;
+            this.fontRenderContext = fontRenderContext;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (object instanceof Key == false) {
+                return false;
+            }
+            Key key = (Key) object;
+            return maxWidth == key.maxWidth && text.equals(key.text) && font.equals(key.font)
+                    && fontRenderContext.equals(key.fontRenderContext);
+        }
+
+        @Override
+        public int hashCode() {
+            return ((text.hashCode()*31 + font.hashCode())*31 + maxWidth)*31 + fontRenderContext.hashCode();
+        }
+    }
+
+    /**
+     * Gets the layout of some text, working it out if it is not already in the cache.
+     * @param text The text.
+     * @param font The font.
+     * @param maxWidth The maximum width of each line.
+     * @param g The graphics object that the text will be drawn with.
+     * @return The layout.
+     */
+    public static Layout getLayout(String text, Font font, int maxWidth, Graphics g) {
+        FontMetrics fontMetrics = g.getFontMetrics(font);
+        Key key = new Key(text, font, maxWidth, fontMetrics.getFontRenderContext());
+        Layout layout = layouts.get(key);
+        if (layout == null) {
+            layout = createLayout(text, maxWidth, fontMetrics);
+            layouts.put(key, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * Throws away all of the layouts.
+     */
+    public static void clear() {
+        layouts.clear();
+    }
+
+    /**
+     * Separate the text into multiple lines such that each line does not exceed the maximum width.
+     *
+     * Each word is added to the current line along with the space after it, until a word does not fit; then a new
+     * line is started. A word that is too long to fit on a line by itself is put on its own line anyway.
+     * Since the words are separated by single spaces, every line is a part of the original text, so it is measured
+     * straight from the characters of the text without building any new strings.
+     *
+     * @param text The text.
+     * @param maxWidth The maximum width of each line.
+     * @param fontMetrics Used to measure the text.
+     * @return The layout.
+     */
+    private static Layout createLayout(String text, int maxWidth, FontMetrics fontMetrics) {
+        ArrayList<String> lines = new ArrayList<>();
+        ArrayList<Integer> lineWidths = new ArrayList<>();
+
+        //Get each word in the text.
+        String[] words = text.split(" ");
+        char[] characters = text.toCharArray();
+
+        //Where the current line starts and ends in the text, and where the next word starts.
+        int lineStart = 0;
+        int lineEnd = 0;
+        int lineWidth = 0;
+        int wordStart = 0;
+
+        //Loop until the last word is added to a line.
+        int index = 0;
+        while (index < words.length) {
+            //Try adding the next word to the line, along with the space after it, if there is another word.
+            int wordEnd = wordStart + words[index].length();
+            if (index + 1 < words.length) {
+                wordEnd ++;
+            }
+            int textWidth = fontMetrics.charsWidth(characters, lineStart, wordEnd - lineStart);
+
+            //The additional word makes the line exceed the max allowed width.
+            if (textWidth > maxWidth) {
+                //Special case: a single 'word' is too long to fit alone on one line. Just add it anyway.
+                if (lineEnd == lineStart) {
+                    lines.add(text.substring(lineStart, wordEnd));
+                    lineWidths.add(textWidth);
+                    lineStart = wordEnd;
+                    lineEnd = wordEnd;
+                    wordStart = wordEnd;
+                    index ++;
+                }
+                //Else, this line is now 'maxed out'. Move on to the next line; it will start with this word.
+                else {
+                    lines.add(text.substring(lineStart, lineEnd));
+                    lineWidths.add(lineWidth);
+                    lineStart = lineEnd;
+                }
+            }
+            //Else, add the word to the line.
+            else {
+                lineEnd = wordEnd;
+                lineWidth = textWidth;
+                wordStart = wordEnd;
+                index ++;
+
+                //There are no more words available to be added. This last line is complete.
+                if (index == words.length) {
+                    lines.add(text.substring(lineStart, lineEnd));
+                    lineWidths.add(lineWidth);
+                }
+            }
+        }
+
+        //Lay out the glyphs of each line now, so that drawing them is just a copy.
+        int[] widths = new int[lineWidths.size()];
+        GlyphVector[] glyphVectors = new GlyphVector[lines.size()];
+        for (int i = 0; i < widths.length; i ++) {
+            widths[i] = lineWidths.get(i);
+            glyphVectors[i] = fontMetrics.getFont().createGlyphVector(fontMetrics.getFontRenderContext(), lines.get(i));
+        }
+        return new Layout(lines.toArray(new String[lines.size()]), widths, glyphVectors);
+    }
+}
@@ -0,0 +1,150 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache of scores that have already been worked out, looked up by the Zobrist hash of a board (see Board.getHash).
+ *
+ * The table has a fixed number of slots, given when it is made, so it never uses more memory however long a search
+ * goes on. A key can be stored in any of BUCKET_SIZE slots in a row, starting from the slot its hash points to. When
+ * all of them are taken, the slot that is the least useful is replaced: one stored by an older search first, and then
+ * the one with the lowest depth, since a deeper score took longer to work out.
+ *
+ * Many threads can use a table at once, without locks. Each slot is three longs in an AtomicLongArray: a check, the
+ * score and the info (the depth and the age). The check is the key XORed with the other two, so if a thread reads a
+ * slot while another thread is writing it, the check will not match and it is treated as a miss. Because of this, the
+ * longs are read and written with opaque access (each one is whole, but there is no ordering between them), which
+ * costs no more than a plain array.
+ */
+public class TranspositionTable {
+
+    //The number of slots that a key can be stored in.
+    final private static int BUCKET_SIZE = 4;
+    //The number of longs in each slot, and where each one is.
+    final private static int SLOT_LONGS = 3;
+    final private static int CHECK = 0, VALUE = 1, INFO = 2;
+
+    //The info of a slot: the depth in the low 16 bits, the age in the next 16 bits, and a bit to mark it as used, so
+    //that an empty slot (all zeros) never matches.
+    final private static int DEPTH_MASK = 0xFFFF;
+    final private static int AGE_SHIFT = 16;
+    final private static int AGE_MASK = 0xFFFF;
+    final private static long USED = 1L << 32;
+
+    //The slots, and the number of slots minus one.
+    final private AtomicLongArray slots;
+    final private int slotMask;
+
+    //The age of the current search. Each new search makes everything stored before it older.
+    private volatile int age = 0;
+
+    //How many lookups found a score, and how many did not.
+    final private LongAdder hits = new LongAdder();
+    final private LongAdder misses = new LongAdder();
+
+    /**
+     * Constructor. Creates an empty table.
+     * @param entries The number of scores that the table can hold. It is rounded up to a power of two.
+     */
+    public TranspositionTable(int entries) {
+        int capacity = Integer.highestOneBit(Math.max(BUCKET_SIZE, entries) - 1) << 1;
+        slots = new AtomicLongArray(capacity*SLOT_LONGS);
+        slotMask = capacity - 1;
+    }
+
+    /**
+     * Looks up a score.
+     * @param key The key, made from the hash of the board.
+     * @param depth The depth of the score.
+     * @return The score, or NaN if it is not in the table.
+     */
+    public double get(long key, int depth) {
+        int first = (int) key;
+        for (int i = 0; i < BUCKET_SIZE; i ++) {
+            int slot = ((first + i) & slotMask)*SLOT_LONGS;
+            long info = slots.getOpaque(slot + INFO);
+            long value = slots.getOpaque(slot + VALUE);
+            long check = slots.getOpaque(slot + CHECK);
+            if (info != 0 && (check ^ value ^ info) == key && (int) (info & DEPTH_MASK) == depth) {
+                hits.increment();
+                return Double.longBitsToDouble(value);
+            }
+        }
+        misses.increment();
+        return Double.NaN;
+    }
+
+    /**
+     * Stores a score. If the key is already stored, it is replaced. If not, it takes an empty slot, or the least
+     * useful slot, unless every slot has a deeper score from the current search.
+     * @param key The key, made from the hash of the board.
+     * @param depth The depth of the score: the number of moves that were searched past the board to work it out.
+     * @param score The score.
+     */
+    public void put(long key, int depth, double score) {
+        int currentAge = age & AGE_MASK;
+        int first = (int) key;
+        int victim = -1;
+        //Slots from older searches are the least useful, and then the ones with the lowest depth.
+        int victimPriority = Integer.MAX_VALUE;
+        for (int i = 0; i < BUCKET_SIZE; i ++) {
+            int slot = ((first + i) & slotMask)*SLOT_LONGS;
+            long info = slots.getOpaque(slot + INFO);
+            if (info == 0 || (slots.getOpaque(slot + CHECK) ^ slots.getOpaque(slot + VALUE) ^ info) == key) {
+                victim = slot;
+                break;
+            }
+            int slotAge = (int) (info >>> AGE_SHIFT) & AGE_MASK;
+            int priority = (slotAge == currentAge ? 1 << AGE_SHIFT : 0) | (int) (info & DEPTH_MASK);
+            if (priority < victimPriority) {
+                victim = slot;
+                victimPriority = priority;
+            }
+        }
+        //Keep the slots if they are all deeper, and from this search. (An empty or matching slot is always taken.)
+        if (victimPriority != Integer.MAX_VALUE && victimPriority > ((1 << AGE_SHIFT) | depth)) {
+            return;
+        }
+
+        long info = USED | (long) currentAge << AGE_SHIFT | (depth & DEPTH_MASK);
+        long value = Double.doubleToRawLongBits(score);
+        slots.setOpaque(victim + INFO, info);
+        slots.setOpaque(victim + VALUE, value);
+        slots.setOpaque(victim + CHECK, key ^ value ^ info);
+    }
+
+    /**
+     * Starts a new search. Everything stored before is kept, but it is the first to be replaced.
+     */
+    public void newSearch() {
+        age ++;
+    }
+
+    /**
+     * Empties the table.
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length(); i ++) {
+            slots.set(i, 0);
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    /*  Getters */
+
+    /**
+     * Gets the number of scores the table can hold.
+     * @return The number of slots.
+     */
+    public int getCapacity() {
+        return slotMask + 1;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,29 @@
+/**
+ * Chooses every shape at random, with the same chance for each one and no memory of what came before. This is how the
+ * game has always chosen shapes, so long runs of the same shape, or long waits for one, can happen.
+ */
+public class UniformPieceGenerator extends RandomPieceGenerator {
+
+    /**
+     * Constructor.
+     * @param seed The seed.
+     */
+    public UniformPieceGenerator(long seed) {
+        super(seed);
+    }
+
+    @Override
+    protected RandomPieceGenerator create(long seed) {
+        return new UniformPieceGenerator(seed);
+    }
+
+    @Override
+    public String getName() {
+        return "uniform";
+    }
+
+    @Override
+    public int nextType() {
+        return random.nextInt(GamePiece.getTYPES());
+    }
+}
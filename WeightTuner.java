@@ -0,0 +1,355 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Tunes the weights of the AutoPlayer with a genetic algorithm.
+ *
+ * Each generation has a population of weight vectors. Every weight vector plays the same set of games, each one on
+ * the same grid as the game window, with its own seeded piece generator and a limit on the number of game pieces. Its
+ * fitness is the total number of lines it clears. The best weight vectors are kept as they are, and the rest of the
+ * next generation is bred from the current one: two parents are picked by tournament, their weights are averaged
+ * (each one counting by its fitness), and sometimes one weight is nudged at random.
+ *
+ * All of the games of a generation are run on all of the cores, by a work-stealing ForkJoinPool. Every random number
+ * comes from a seed made from the run`s seed, the generation and the game, never from the order the games finish in,
+ * so a run gives the same results no matter how many cores it has.
+ *
+ * The games are played the same way as the computer player plays in the game window: with the uniform piece generator
+ * (the game`s default), and looking ahead at the next game piece. So the weights are tuned for the player that will
+ * use them. The Monte Carlo search (AutoPlayer.setSearchTime) is left off, since it depends on how fast the computer
+ * is, and the games would no longer be the same from one run to the next.
+ *
+ * After every generation, the population is saved to a checkpoint file, so a run that is stopped can carry on from
+ * where it was by starting it again with the same file. The best weights of a checkpoint can be played in the game
+ * with -Dtetris.autoplayWeights=checkpoint-file (see AutoPlayer.readWeights).
+ *
+ * Usage: java WeightTuner checkpoint-file [generations] [population] [games] [pieces per game] [seed]
+ */
+public class WeightTuner {
+
+    //The size of the grid, the same as the game window`s.
+    final private static int COLUMNS = 10;
+    final private static int ROWS = 16;
+
+    //The default settings of a run.
+    final private static int DEFAULT_GENERATIONS = 20;
+    final private static int DEFAULT_POPULATION = 50;
+    final private static int DEFAULT_GAMES = 10;
+    final private static int DEFAULT_PIECES = 500;
+
+    //How many of the best weight vectors are kept as they are, how many are in each tournament, and how likely a
+    //child is to be nudged, and by how much at most.
+    final private static int ELITES = 5;
+    final private static int TOURNAMENT_SIZE = 5;
+    final private static double MUTATION_CHANCE = 0.1;
+    final private static double MUTATION_SIZE = 0.2;
+
+    //The settings of the run.
+    private int population, games, pieces;
+    private long seed;
+
+    //The current generation, its weight vectors, and their fitness (or -1 if not played yet).
+    private int generation = 0;
+    private double[][] weights;
+    private long[] fitness;
+
+    //Plays the games.
+    private ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Constructor. Starts a new run, with a random population.
+     * @param population The number of weight vectors in each generation.
+     * @param games The number of games each weight vector plays in each generation.
+     * @param pieces The most game pieces in each game.
+     * @param seed The seed of the run.
+     */
+    public WeightTuner(int population, int games, int pieces, long seed) {
+        this.population = population;
+        this.games = games;
+        this.pieces = pieces;
+        this.seed = seed;
+        weights = new double[population][];
+        fitness = new long[population];
+        SplittableRandom random = new SplittableRandom(mix(seed, -1, 0));
+        for (int i = 0; i < population; i ++) {
+            double[] vector = new double[AutoPlayer.WEIGHT_COUNT];
+            for (int j = 0; j < vector.length; j ++) {
+                vector[j] = random.nextDouble()*2 - 1;
+            }
+            weights[i] = normalize(vector);
+            fitness[i] = -1;
+        }
+    }
+
+    /**
+     * Plays every game of the current generation, and then breeds the next one.
+     * @return How the generation went.
+     */
+    public String runGeneration() {
+        long startTime = System.nanoTime();
+        long lines = play();
+        double seconds = (System.nanoTime() - startTime)/1e9;
+
+        int best = 0;
+        for (int i = 1; i < population; i ++) {
+            if (fitness[i] > fitness[best]) {
+                best = i;
+            }
+        }
+        int totalGames = population*games;
+        String report = String.format(Locale.ROOT, "Generation %d: %d games in %.1f s (%.0f games/s), %.1f lines per "
+                + "game, best %.1f lines per game with %s", generation, totalGames, seconds, totalGames/seconds,
+                lines/(double) totalGames, fitness[best]/(double) games, Arrays.toString(weights[best]));
+
+        breed();
+        return report;
+    }
+
+    /**
+     * Plays every game of every weight vector in the generation, on all of the cores, and works out their fitness.
+     * @return The total number of lines cleared in the generation.
+     */
+    private long play() {
+        ArrayList<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < population; i ++) {
+            for (int game = 0; game < games; game ++) {
+                //Every weight vector in a generation plays the same games, so they are compared fairly.
+                final double[] vector = weights[i];
+                final long gameSeed = mix(seed, generation, game);
+                tasks.add(new Callable<Integer>() {
+                    public Integer call() {
+                        return playGame(vector, gameSeed, pieces);
+                    }
+                });
+            }
+        }
+
+        long total = 0;
+        try {
+            List<Future<Integer>> results = pool.invokeAll(tasks);
+            for (int i = 0; i < population; i ++) {
+                fitness[i] = 0;
+                for (int game = 0; game < games; game ++) {
+                    fitness[i] += results.get(i*games + game).get();
+                }
+                total += fitness[i];
+            }
+        } catch (InterruptedException | ExecutionException exception) {
+            throw new IllegalStateException("Could not play the games.", exception);
+        }
+        return total;
+    }
+
+    /**
+     * Plays a single game without drawing it.
+     * @param vector The weights of the player.
+     * @param gameSeed The seed of the piece generator.
+     * @param maxPieces The most game pieces to play.
+     * @return The number of lines cleared.
+     */
+    public static int playGame(double[] vector, long gameSeed, int maxPieces) {
+        GameEngine engine = new GameEngine(COLUMNS, ROWS, new UniformPieceGenerator(gameSeed));
+        //Many games are played at once, so each one plays on its own thread. It looks ahead at the next game piece, the
+        //same as the player in the game does.
+        AutoPlayer autoPlayer = new AutoPlayer(vector, null);
+        while (engine.isGameOver() == false && engine.getPiecesPlaced() < maxPieces) {
+            autoPlayer.update(engine);
+            engine.step();
+        }
+        return engine.getLinesCleared();
+    }
+
+    /**
+     * Replaces the population with the next generation.
+     */
+    private void breed() {
+        SplittableRandom random = new SplittableRandom(mix(seed, generation, -1));
+
+        //Keep the best weight vectors.
+        Integer[] order = new Integer[population];
+        for (int i = 0; i < population; i ++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return Long.compare(fitness[b], fitness[a]);
+            }
+        });
+        double[][] nextWeights = new double[population][];
+        for (int i = 0; i < Math.min(ELITES, population); i ++) {
+            nextWeights[i] = weights[order[i]];
+        }
+
+        //Breed the rest.
+        for (int i = Math.min(ELITES, population); i < population; i ++) {
+            int first = pickParent(random);
+            int second = pickParent(random);
+            double[] child = new double[AutoPlayer.WEIGHT_COUNT];
+            //Add one so that two parents that cleared no lines still make a child.
+            double firstFitness = fitness[first] + 1, secondFitness = fitness[second] + 1;
+            for (int j = 0; j < child.length; j ++) {
+                child[j] = weights[first][j]*firstFitness + weights[second][j]*secondFitness;
+            }
+            if (random.nextDouble() < MUTATION_CHANCE) {
+                normalize(child);
+                child[random.nextInt(child.length)] += (random.nextDouble()*2 - 1)*MUTATION_SIZE;
+            }
+            nextWeights[i] = normalize(child);
+        }
+
+        weights = nextWeights;
+        Arrays.fill(fitness, -1);
+        generation ++;
+    }
+
+    /**
+     * Picks a parent: the fittest of a few weight vectors picked at random.
+     * @param random The random numbers to use.
+     * @return The index of the parent.
+     */
+    private int pickParent(SplittableRandom random) {
+        int best = random.nextInt(population);
+        for (int i = 1; i < TOURNAMENT_SIZE; i ++) {
+            int other = random.nextInt(population);
+            if (fitness[other] > fitness[best]) {
+                best = other;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Scales a weight vector to a length of 1. Only the directions of the weights matter to the player, so this keeps
+     * them from growing or shrinking from one generation to the next.
+     * @param vector The weight vector. It is changed.
+     * @return The same weight vector.
+     */
+    private static double[] normalize(double[] vector) {
+        double length = 0;
+        for (double weight : vector) {
+            length += weight*weight;
+        }
+        length = Math.sqrt(length);
+        if (length > 0) {
+            for (int i = 0; i < vector.length; i ++) {
+                vector[i] /= length;
+            }
+        }
+        return vector;
+    }
+
+    /**
+     * Makes a seed from the seed of the run, a generation and a game, so that each one gets its own stream of random
+     * numbers (the finalizer of SplitMix64).
+     */
+    private static long mix(long seed, long generation, long game) {
+        long z = seed + generation*0x9E3779B97F4A7C15L + game*0xC2B2AE3D27D4EB4FL;
+        z = (z ^ (z >>> 30))*0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27))*0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /*  Checkpoints */
+
+    /**
+     * Saves the run to a file. The file is written next to the old one first and then moved over it, so stopping the
+     * run while it is being saved never leaves a broken checkpoint.
+     * The first line holds the settings of the run and the generation; every line after that is a weight vector.
+     * @param file The file.
+     * @throws IOException If the file can not be written.
+     */
+    public void save(Path file) throws IOException {
+        Path temporaryFile = Paths.get(file.toString() + ".tmp");
+        try (FileWriter writer = new FileWriter(temporaryFile.toFile())) {
+            writer.write(population + " " + games + " " + pieces + " " + seed + " " + generation + "\n");
+            for (double[] vector : weights) {
+                StringBuilder line = new StringBuilder();
+                for (int j = 0; j < vector.length; j ++) {
+                    line.append(j == 0 ? "" : " ").append(Double.toString(vector[j]));
+                }
+                writer.write(line.append("\n").toString());
+            }
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a run from a file saved by save().
+     * @param file The file.
+     * @return The run, ready to play its next generation.
+     * @throws IOException If the file can not be read, or is not a checkpoint.
+     */
+    public static WeightTuner load(Path file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file.toFile()))) {
+            String[] settings = reader.readLine().trim().split(" ");
+            WeightTuner tuner = new WeightTuner(Integer.parseInt(settings[0]), Integer.parseInt(settings[1]),
+                    Integer.parseInt(settings[2]), Long.parseLong(settings[3]));
+            tuner.generation = Integer.parseInt(settings[4]);
+            for (int i = 0; i < tuner.population; i ++) {
+                String[] values = reader.readLine().trim().split(" ");
+                for (int j = 0; j < AutoPlayer.WEIGHT_COUNT; j ++) {
+                    tuner.weights[i][j] = Double.parseDouble(values[j]);
+                }
+            }
+            return tuner;
+        } catch (NullPointerException | NumberFormatException | ArrayIndexOutOfBoundsException exception) {
+            throw new IOException("Not a checkpoint: " + file);
+        }
+    }
+
+    /**
+     * Gets the best weights of the last generation that was played. The best weight vectors are kept in order at the
+     * start of the next generation, so this is the first one.
+     * @return The weights, or a random weight vector if no generation has been played yet.
+     */
+    public double[] getBestWeights() {
+        return weights[0].clone();
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java WeightTuner checkpoint-file [generations] [population] [games] "
+                    + "[pieces per game] [seed]");
+            return;
+        }
+        Path checkpoint = Paths.get(args[0]);
+        int generations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_GENERATIONS;
+
+        WeightTuner tuner;
+        if (Files.exists(checkpoint) == true) {
+            tuner = load(checkpoint);
+            System.out.println("Carrying on from generation " + tuner.getGeneration() + " of " + checkpoint);
+        }
+        else {
+            tuner = new WeightTuner(args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_POPULATION,
+                    args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_GAMES,
+                    args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_PIECES,
+                    args.length > 5 ? Long.parseLong(args[5]) : System.nanoTime());
+        }
+
+        while (tuner.getGeneration() < generations) {
+            System.out.println(tuner.runGeneration());
+            tuner.save(checkpoint);
+        }
+    }
+}